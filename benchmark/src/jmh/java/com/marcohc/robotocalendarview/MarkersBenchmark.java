@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storing a few years of markers and turning them into the cell mask of a month
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MarkersBenchmark {
+
+    private static final int YEARS = 3;
+
+    @Param({"100", "1000"})
+    public int markerCount;
+
+    private final MonthGrid monthGrid = new MonthGrid();
+    private final EpochDaySet markedDays = new EpochDaySet();
+    private long[] epochDays;
+    private int monthIndex;
+
+    @Setup
+    public void setUp() {
+        long firstEpochDay = MonthGrid.toEpochDay(2020, Calendar.JANUARY, 1);
+        Random random = new Random(42);
+        epochDays = new long[markerCount];
+        for (int i = 0; i < markerCount; i++) {
+            epochDays[i] = firstEpochDay + random.nextInt(YEARS * 365);
+        }
+        for (long epochDay : epochDays) {
+            markedDays.add(epochDay);
+        }
+        monthGrid.set(2021, Calendar.JUNE, Calendar.MONDAY);
+    }
+
+    /**
+     * Replace every marker, like setMarkers(long[], MarkerType)
+     */
+    @Benchmark
+    public int replaceMarkers() {
+        EpochDaySet set = markedDays;
+        set.clear();
+        for (long epochDay : epochDays) {
+            set.add(epochDay);
+        }
+        return set.size();
+    }
+
+    /**
+     * Cell mask of the next month, like rendering the markers after tapping an arrow
+     */
+    @Benchmark
+    public long monthCellMask() {
+        int index = monthIndex++ % (YEARS * 12);
+        monthGrid.set(2020 + index / 12, index % 12, Calendar.MONDAY);
+        return markedDays.getBits(monthGrid.getFirstEpochDay(), monthGrid.getDaysInMonth()) << monthGrid.getLeadingOffset();
+    }
+
+    /**
+     * Cell mask of the shown month from unsorted days, like the view did before keeping a store
+     */
+    @Benchmark
+    public long scanCellMask() {
+        long cellMask = 0;
+        for (long epochDay : epochDays) {
+            int index = monthGrid.getCellIndexOfEpochDay(epochDay);
+            if (index != MonthGrid.NO_CELL) {
+                cellMask |= 1L << index;
+            }
+        }
+        return cellMask;
+    }
+
+    @Benchmark
+    public int countYear() {
+        return markedDays.count(MonthGrid.toEpochDay(2021, Calendar.JANUARY, 1), MonthGrid.toEpochDay(2021, Calendar.DECEMBER, 31));
+    }
+
+    /**
+     * Markers of a month filled by a MarkerProvider
+     */
+    @Benchmark
+    public int monthMarkers() {
+        MonthMarkers monthMarkers = new MonthMarkers(2021, Calendar.JUNE);
+        for (long epochDay : epochDays) {
+            if (monthGrid.contains(epochDay)) {
+                monthMarkers.mark(MonthGrid.dayOfMonthOf(epochDay), MarkerType.CIRCLE_1);
+            }
+        }
+        return monthMarkers.getDays(MarkerType.CIRCLE_1);
+    }
+}
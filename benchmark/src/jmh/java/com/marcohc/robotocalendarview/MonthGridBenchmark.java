@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month layout and day lookups done by every {@code updateView()}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MonthGridBenchmark {
+
+    private static final int MONTHS = 10 * 12;
+
+    private final MonthGrid monthGrid = new MonthGrid();
+    private final long[] epochDays = new long[MONTHS];
+    private int monthIndex;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < MONTHS; i++) {
+            epochDays[i] = MonthGrid.toEpochDay(2020 + i / 12, i % 12, 1 + i % 28);
+        }
+    }
+
+    /**
+     * Grid of the next month, like tapping an arrow
+     */
+    @Benchmark
+    public int setMonth() {
+        int index = monthIndex++ % MONTHS;
+        monthGrid.set(2020 + index / 12, index % 12, Calendar.MONDAY);
+        return monthGrid.getLeadingOffset() + monthGrid.getRowCount();
+    }
+
+    /**
+     * Grid position of every day of the month, like setUpDaysInCalendar
+     */
+    @Benchmark
+    public int cellIndexOfEveryDay() {
+        int sum = 0;
+        for (int i = 1; i <= monthGrid.getDaysInMonth(); i++) {
+            sum += monthGrid.getCellIndexOfDayOfMonth(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Grid position of a day of any month, like marking or selecting a date
+     */
+    @Benchmark
+    public int cellIndexOfEpochDay() {
+        return monthGrid.getCellIndexOfEpochDay(epochDays[monthIndex++ % MONTHS]);
+    }
+
+    @Benchmark
+    public long toEpochDay() {
+        int index = monthIndex++ % MONTHS;
+        return MonthGrid.toEpochDay(2020 + index / 12, index % 12, 15);
+    }
+
+    @Benchmark
+    public int fromEpochDay() {
+        long epochDay = epochDays[monthIndex++ % MONTHS];
+        return MonthGrid.yearOf(epochDay) + MonthGrid.monthOf(epochDay) + MonthGrid.dayOfMonthOf(epochDay);
+    }
+}
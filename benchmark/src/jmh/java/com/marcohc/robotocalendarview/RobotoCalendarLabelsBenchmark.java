@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month titles and week day headers of a few locales
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RobotoCalendarLabelsBenchmark {
+
+    @Param({"en-US", "es-ES", "de-DE", "ja-JP"})
+    public String languageTag;
+
+    private Locale locale;
+    private int monthIndex;
+
+    @Setup
+    public void setUp() {
+        locale = Locale.forLanguageTag(languageTag);
+    }
+
+    /**
+     * Title of the next month, like tapping an arrow
+     */
+    @Benchmark
+    public String title() {
+        int index = monthIndex++ % 24;
+        return RobotoCalendarLabels.get(locale).getTitle(2020 + index / 12, index % 12);
+    }
+
+    @Benchmark
+    public void weekDays(Blackhole blackhole) {
+        RobotoCalendarLabels labels = RobotoCalendarLabels.get(locale);
+        for (int i = Calendar.SUNDAY; i <= Calendar.SATURDAY; i++) {
+            blackhole.consume(labels.getWeekDay(i, false));
+        }
+    }
+}
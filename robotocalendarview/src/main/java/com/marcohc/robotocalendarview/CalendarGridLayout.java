@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lays the day of the month cells out in a grid of {@value MonthGrid#DAYS_IN_WEEK} columns, row by row in
+ * child order, replacing the weighted week day columns that measured every cell more than once
+ * <p>
+ * Every cell is measured once with the exact width of its column and the height of the tallest cell, so a cell
+ * can never change the size of the grid unless a row is shown or hidden. While a batch is open, layout requests
+ * of the cells don't reach the ancestors and only the cells that asked are measured and laid out again when
+ * the batch ends.
+ */
+class CalendarGridLayout extends ViewGroup {
+
+    private int cellHeight;
+    private int rowCount;
+    private int batchDepth;
+    private boolean layoutRequestedInBatch;
+    @Nullable
+    private RangeBandPainter rangeBandPainter;
+
+    CalendarGridLayout(Context context) {
+        this(context, null);
+    }
+
+    CalendarGridLayout(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Start changing cells, batches may be nested
+     */
+    void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Stop changing cells, once the outermost batch ends the layout requests made in it are handled
+     */
+    void endBatch() {
+        if (--batchDepth > 0 || !layoutRequestedInBatch) {
+            return;
+        }
+        layoutRequestedInBatch = false;
+
+        // Shown or hidden rows change the height of the grid, anything else only the cells that asked
+        if (getVisibleRowCount() != rowCount || cellHeight == 0) {
+            super.requestLayout();
+            return;
+        }
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !child.isLayoutRequested()) {
+                continue;
+            }
+            if (child.getWidth() == 0) {
+                // Never laid out, it needs a place in the grid
+                super.requestLayout();
+                return;
+            }
+            child.measure(MeasureSpec.makeMeasureSpec(child.getWidth(), MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(cellHeight, MeasureSpec.EXACTLY));
+            child.layout(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
+        }
+        invalidate();
+    }
+
+    /**
+     * @param rangeBandPainter, draws the ranges behind the cells, or null to draw none
+     */
+    void setRangeBandPainter(@Nullable RangeBandPainter rangeBandPainter) {
+        this.rangeBandPainter = rangeBandPainter;
+        setWillNotDraw(rangeBandPainter == null);
+        invalidate();
+    }
+
+    @Override
+    public void requestLayout() {
+        if (batchDepth > 0) {
+            layoutRequestedInBatch = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        int contentWidth = width - getPaddingLeft() - getPaddingRight();
+        int unspecifiedHeight = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+
+        // Cells of a calendar share a layout, so their natural heights match and a single measure is enough
+        cellHeight = 0;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE) {
+                child.measure(MeasureSpec.makeMeasureSpec(getColumnWidth(i, contentWidth), MeasureSpec.EXACTLY), unspecifiedHeight);
+                cellHeight = Math.max(cellHeight, child.getMeasuredHeight());
+            }
+        }
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && child.getMeasuredHeight() != cellHeight) {
+                child.measure(MeasureSpec.makeMeasureSpec(getColumnWidth(i, contentWidth), MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(cellHeight, MeasureSpec.EXACTLY));
+            }
+        }
+
+        rowCount = getVisibleRowCount();
+        int height = getPaddingTop() + getPaddingBottom() + rowCount * cellHeight;
+        setMeasuredDimension(width, resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        int contentWidth = right - left - getPaddingLeft() - getPaddingRight();
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            int column = i % MonthGrid.DAYS_IN_WEEK;
+            int childLeft = getPaddingLeft() + column * contentWidth / MonthGrid.DAYS_IN_WEEK;
+            int childTop = getPaddingTop() + (i / MonthGrid.DAYS_IN_WEEK) * cellHeight;
+            child.layout(childLeft, childTop, childLeft + child.getMeasuredWidth(), childTop + cellHeight);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        // Drawn before the cells, so bands run behind them without gaps between columns
+        if (rangeBandPainter != null && cellHeight > 0) {
+            float cellWidth = (getWidth() - getPaddingLeft() - getPaddingRight()) / (float) MonthGrid.DAYS_IN_WEEK;
+            rangeBandPainter.draw(canvas, getPaddingLeft(), getPaddingTop(), cellWidth, cellHeight);
+        }
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+    }
+
+    /**
+     * @return width of the column of the cell, columns split the remainder of the width so they leave no gap
+     */
+    private static int getColumnWidth(int index, int contentWidth) {
+        int column = index % MonthGrid.DAYS_IN_WEEK;
+        return (column + 1) * contentWidth / MonthGrid.DAYS_IN_WEEK - column * contentWidth / MonthGrid.DAYS_IN_WEEK;
+    }
+
+    private int getVisibleRowCount() {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            if (getChildAt(i).getVisibility() != GONE) {
+                return i / MonthGrid.DAYS_IN_WEEK + 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+/**
+ * Work done by the calendar that is measured for a {@link RobotoCalendarView.CalendarMetricsListener} and
+ * wrapped in an {@link android.os.Trace} section with the same name
+ */
+public enum CalendarPhase {
+
+    /**
+     * Finding and inflating the views of the calendar, counts the day of the month views created
+     */
+    INFLATE("RobotoCalendar.inflate"),
+
+    /**
+     * Rebuilding the shown month, counts its days
+     */
+    UPDATE_MONTH("RobotoCalendar.updateMonth"),
+
+    /**
+     * Showing the markers of a type on the shown month, counts the marked days
+     */
+    APPLY_MARKERS("RobotoCalendar.applyMarkers"),
+
+    /**
+     * Showing the day counts of the shown month as heat levels, counts the days with a count
+     */
+    APPLY_HEATMAP("RobotoCalendar.applyHeatmap"),
+
+    /**
+     * Showing the selected range and the highlighted ranges on the shown month, counts the days in them
+     */
+    APPLY_RANGES("RobotoCalendar.applyRanges"),
+
+    /**
+     * Marking a day as selected
+     */
+    SELECT_DAY("RobotoCalendar.selectDay"),
+
+    /**
+     * Handling a click or long click on a day, including the calls to the {@link RobotoCalendarView.RobotoCalendarListener}
+     */
+    CLICK("RobotoCalendar.click");
+
+    final String sectionName;
+
+    CalendarPhase(String sectionName) {
+        this.sectionName = sectionName;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.annotation.SuppressLint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * Views of a single day of the month, resolved once when the cell is inflated
+ */
+final class DayOfTheMonthCell {
+
+    final ViewGroup dayOfTheMonthLayout;
+    final ViewGroup dayOfTheMonthBackground;
+    final TextView dayOfTheMonthText;
+    final ImageView dayOfTheMonthCircleImage1;
+    final ImageView dayOfTheMonthCircleImage2;
+    // Typeface given by the styles, restored when a calendar without its own typeface takes the cell
+    final Typeface inflatedTypeface;
+    // Theme and configuration the cell was inflated with, set by the pool
+    Object poolKey;
+    // Own instance tinted per heat level, created when the cell first shows one
+    Drawable heatDrawable;
+
+    private DayOfTheMonthCell(ViewGroup dayOfTheMonthLayout, ViewGroup dayOfTheMonthBackground, TextView dayOfTheMonthText, ImageView dayOfTheMonthCircleImage1, ImageView dayOfTheMonthCircleImage2) {
+        this.dayOfTheMonthLayout = dayOfTheMonthLayout;
+        this.dayOfTheMonthBackground = dayOfTheMonthBackground;
+        this.dayOfTheMonthText = dayOfTheMonthText;
+        this.dayOfTheMonthCircleImage1 = dayOfTheMonthCircleImage1;
+        this.dayOfTheMonthCircleImage2 = dayOfTheMonthCircleImage2;
+        this.inflatedTypeface = dayOfTheMonthText.getTypeface();
+    }
+
+    static DayOfTheMonthCell inflate(LayoutInflater inflater) {
+        @SuppressLint("InflateParams")
+        ViewGroup dayOfTheMonthLayout = (ViewGroup) inflater.inflate(R.layout.roboto_calendar_day_of_the_month_layout, null);
+        return new DayOfTheMonthCell(
+                dayOfTheMonthLayout,
+                dayOfTheMonthLayout.findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_BACKGROUND),
+                dayOfTheMonthLayout.findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_TEXT),
+                dayOfTheMonthLayout.findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_CIRCLE_IMAGE_1),
+                dayOfTheMonthLayout.findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_CIRCLE_IMAGE_2));
+    }
+}
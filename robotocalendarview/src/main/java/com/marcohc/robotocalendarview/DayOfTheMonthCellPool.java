@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import io.github.inflationx.viewpump.ViewPumpContextWrapper;
+
+/**
+ * Day of the month cells shared by every calendar of the process, so opening a calendar again takes the
+ * cells of the last one instead of inflating 42 new ones
+ * <p>
+ * Cells are inflated with the theme resource and the configuration of the calendar on top of the application
+ * context, so the pool never keeps an activity or its theme alive, and are only given to calendars with the
+ * same theme resource and configuration. Styles applied to a theme at runtime aren't part of the key, which is
+ * fine as calendars apply their colours and backgrounds to every cell they take. The pool is emptied when the
+ * system asks the app to trim its memory. Only used from the main thread, except for the inflation of
+ * {@link #prewarm(Context, int)}.
+ */
+final class DayOfTheMonthCellPool {
+
+    static final int MAX_SIZE = MonthGrid.MAX_CELLS * 3;
+
+    private static final HashMap<Key, Bucket> BUCKETS = new HashMap<>();
+    // Cells in every bucket, at most MAX_SIZE
+    private static int size;
+    private static boolean trimMemoryRegistered;
+
+    private DayOfTheMonthCellPool() {
+    }
+
+    /**
+     * Fill the array with pooled cells of the theme and configuration of the context, inflating new ones if
+     * the pool runs out
+     *
+     * @param ownTypeface, true if the calendar sets its own typeface, so the fontPath styles are skipped
+     */
+    static void acquire(@NotNull Context context, @NotNull DayOfTheMonthCell[] cells, boolean ownTypeface) {
+        registerTrimMemory(context);
+        boolean fontPath = !ownTypeface && RobotoCalendarFonts.isViewPumpInitialized();
+        Key key = new Key(context, fontPath);
+        int acquiredCells = take(key, cells, 0);
+        if (ownTypeface && RobotoCalendarFonts.isViewPumpInitialized()) {
+            // The typeface of the calendar replaces the fontPath one, so those cells work too
+            acquiredCells = take(new Key(key, true), cells, acquiredCells);
+        }
+        if (acquiredCells == cells.length) {
+            return;
+        }
+        LayoutInflater inflater = getInflater(context, key);
+        for (int i = acquiredCells; i < cells.length; i++) {
+            cells[i] = inflate(inflater, key);
+        }
+    }
+
+    /**
+     * Remove the cell from its parent and keep it for the next calendar, if the pool isn't full
+     */
+    static void release(@NotNull DayOfTheMonthCell cell) {
+        ViewGroup dayOfTheMonthLayout = cell.dayOfTheMonthLayout;
+        if (dayOfTheMonthLayout.getParent() != null) {
+            ((ViewGroup) dayOfTheMonthLayout.getParent()).removeView(dayOfTheMonthLayout);
+        }
+        dayOfTheMonthLayout.setOnClickListener(null);
+        dayOfTheMonthLayout.setOnLongClickListener(null);
+        if (size < MAX_SIZE) {
+            getBucket((Key) cell.poolKey).cells.addFirst(cell);
+            size++;
+        }
+    }
+
+    /**
+     * Inflate cells on a background thread until the pool holds count of them for the theme and configuration
+     * of the context, with the fontPath styles if the app opted in to them before
+     */
+    static void prewarm(@NotNull Context context, int count) {
+        registerTrimMemory(context);
+        final Key key = new Key(context, RobotoCalendarFonts.isViewPumpInitialized());
+        final Bucket bucket = getBucket(key);
+        final int missingCells = Math.min(count, MAX_SIZE) - bucket.cells.size() - bucket.prewarmingCells;
+        if (missingCells <= 0) {
+            removeIfEmpty(key, bucket);
+            return;
+        }
+        bucket.prewarmingCells += missingCells;
+
+        final LayoutInflater inflater = getInflater(context, key);
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        RobotoCalendarExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DayOfTheMonthCell[] cells = new DayOfTheMonthCell[missingCells];
+                for (int i = 0; i < missingCells; i++) {
+                    cells[i] = inflate(inflater, key);
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        bucket.prewarmingCells -= missingCells;
+                        if (BUCKETS.get(key) != bucket) {
+                            // The pool was cleared while inflating
+                            return;
+                        }
+                        for (DayOfTheMonthCell cell : cells) {
+                            if (size < MAX_SIZE) {
+                                bucket.cells.addLast(cell);
+                                size++;
+                            }
+                        }
+                        removeIfEmpty(key, bucket);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop every pooled cell, cells being prewarmed are dropped once inflated
+     */
+    static void clear() {
+        BUCKETS.clear();
+        size = 0;
+    }
+
+    /**
+     * Move pooled cells of the key to the array, starting at the index
+     *
+     * @return index of the first cell still missing
+     */
+    private static int take(Key key, DayOfTheMonthCell[] cells, int index) {
+        Bucket bucket = BUCKETS.get(key);
+        if (bucket == null) {
+            return index;
+        }
+        while (index < cells.length && !bucket.cells.isEmpty()) {
+            cells[index++] = bucket.cells.pollFirst();
+            size--;
+        }
+        removeIfEmpty(key, bucket);
+        return index;
+    }
+
+    private static DayOfTheMonthCell inflate(LayoutInflater inflater, Key key) {
+        DayOfTheMonthCell cell = DayOfTheMonthCell.inflate(inflater);
+        cell.poolKey = key;
+        return cell;
+    }
+
+    private static Bucket getBucket(Key key) {
+        Bucket bucket = BUCKETS.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            BUCKETS.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Forget the theme and configuration once no cell uses them, so old themes aren't kept
+     */
+    private static void removeIfEmpty(Key key, Bucket bucket) {
+        if (bucket.cells.isEmpty() && bucket.prewarmingCells == 0 && BUCKETS.get(key) == bucket) {
+            BUCKETS.remove(key);
+        }
+    }
+
+    private static LayoutInflater getInflater(Context context, Key key) {
+        Context configurationContext = context.getApplicationContext().createConfigurationContext(key.configuration);
+        Context themedContext = new ContextThemeWrapper(configurationContext, key.themeResId);
+        // With the fontPath styles, apply them with the Calligraphy interceptor the app installed
+        return LayoutInflater.from(key.fontPath ? ViewPumpContextWrapper.wrap(themedContext) : themedContext);
+    }
+
+    private static void registerTrimMemory(Context context) {
+        if (trimMemoryRegistered) {
+            return;
+        }
+        trimMemoryRegistered = true;
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                    clear();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NotNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * @return the theme resource of the closest wrapper that tells it, of the activity or of the application
+     */
+    private static int getThemeResId(Context context) {
+        Context base = context;
+        while (base instanceof ContextWrapper) {
+            if (base instanceof androidx.appcompat.view.ContextThemeWrapper) {
+                return ((androidx.appcompat.view.ContextThemeWrapper) base).getThemeResId();
+            }
+            if (base instanceof Activity) {
+                Activity activity = (Activity) base;
+                try {
+                    // The theme of the activity, or of the application if it has none
+                    return activity.getPackageManager().getActivityInfo(activity.getComponentName(), 0).getThemeResource();
+                } catch (PackageManager.NameNotFoundException exception) {
+                    break;
+                }
+            }
+            base = ((ContextWrapper) base).getBaseContext();
+        }
+        return context.getApplicationInfo().theme;
+    }
+
+    /**
+     * Theme resource, configuration and fonts the cells are inflated with
+     */
+    private static final class Key {
+
+        private final int themeResId;
+        private final Configuration configuration;
+        private final boolean fontPath;
+
+        Key(Context context, boolean fontPath) {
+            themeResId = getThemeResId(context);
+            configuration = new Configuration(context.getResources().getConfiguration());
+            this.fontPath = fontPath;
+        }
+
+        Key(Key key, boolean fontPath) {
+            themeResId = key.themeResId;
+            configuration = key.configuration;
+            this.fontPath = fontPath;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return themeResId == other.themeResId
+                    && fontPath == other.fontPath
+                    && configuration.equals(other.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = themeResId;
+            result = 31 * result + configuration.hashCode();
+            result = 31 * result + (fontPath ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static final class Bucket {
+
+        final ArrayDeque<DayOfTheMonthCell> cells = new ArrayDeque<>();
+        int prewarmingCells;
+    }
+}
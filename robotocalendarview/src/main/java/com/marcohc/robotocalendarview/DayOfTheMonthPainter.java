@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Draws the days of a month on a canvas, shared by the flat mode view and the off screen renderer
+ */
+final class DayOfTheMonthPainter {
+
+    static final int CIRCLE_IMAGE_1 = 1;
+    static final int CIRCLE_IMAGE_2 = 1 << 1;
+    static final int HEAT_LEVEL_SHIFT = 2;
+    static final int HEAT_LEVEL = 7 << HEAT_LEVEL_SHIFT;
+    // Selected as the end of a range, the start is the selected day
+    static final int SELECTED = 1 << 5;
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RobotoCalendarStyle style;
+
+    DayOfTheMonthPainter(RobotoCalendarStyle style) {
+        this.style = style;
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        circlePaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * @param left,               left of the first column
+     * @param top,                top of the first row
+     * @param cellWidth,          width of a column
+     * @param cellHeight,         height of a row
+     * @param backgroundSize,     size of the selected day and today backgrounds
+     * @param firstDayIndex,      grid position of the first day of the month
+     * @param daysInMonth,        number of days in the month
+     * @param selectedDayIndex,   grid position of the selected day or {@link MonthGrid#NO_CELL}
+     * @param currentDayIndex,    grid position of today or {@link MonthGrid#NO_CELL}
+     * @param dayOfTheMonthFlags, circles, heat level and range end of each grid position
+     */
+    void draw(Canvas canvas, float left, float top, float cellWidth, float cellHeight, int backgroundSize, int firstDayIndex, int daysInMonth,
+              int selectedDayIndex, int currentDayIndex, int[] dayOfTheMonthFlags) {
+        int circleSize = style.circleSize;
+        int circleSpacing = style.circleSpacing;
+        int selectedDayTextColor = style.selectedDayTextColor;
+        textPaint.setTextSize(style.dayOfTheMonthTextSize);
+        textPaint.setTypeface(style.typeface);
+        float textOffset = (textPaint.descent() + textPaint.ascent()) / 2f;
+        float textBottom = textPaint.descent() - textOffset;
+        int lastIndex = firstDayIndex + daysInMonth;
+
+        for (int index = firstDayIndex; index < lastIndex && index < MonthGrid.MAX_CELLS; index++) {
+
+            float centerX = left + (index % MonthGrid.DAYS_IN_WEEK) * cellWidth + cellWidth / 2f;
+            float centerY = top + (index / MonthGrid.DAYS_IN_WEEK) * cellHeight + cellHeight / 2f;
+            int flags = dayOfTheMonthFlags[index];
+            boolean selected = index == selectedDayIndex || (flags & SELECTED) != 0;
+
+            // Background
+            Drawable background;
+            if (index == selectedDayIndex) {
+                background = style.selectedDayDrawable;
+            } else if (selected) {
+                background = style.selectedRangeEndDrawable;
+            } else if (index == currentDayIndex) {
+                background = style.currentDayDrawable;
+            } else {
+                background = style.heatLevelDrawables[(flags & HEAT_LEVEL) >> HEAT_LEVEL_SHIFT];
+            }
+            if (background != null) {
+                int backgroundLeft = (int) (centerX - backgroundSize / 2f);
+                int backgroundTop = (int) (centerY - backgroundSize / 2f);
+                background.setBounds(backgroundLeft, backgroundTop, backgroundLeft + backgroundSize, backgroundTop + backgroundSize);
+                background.draw(canvas);
+            }
+
+            // Day of the month
+            textPaint.setColor(selected ? selectedDayTextColor : style.dayOfTheMonthTextColor);
+            canvas.drawText(RobotoCalendarDaysView.DAY_OF_THE_MONTH_LABELS[index - firstDayIndex + 1], centerX, centerY - textOffset, textPaint);
+
+            // Circles
+            if ((flags & (CIRCLE_IMAGE_1 | CIRCLE_IMAGE_2)) != 0) {
+                boolean bothCircles = (flags & CIRCLE_IMAGE_1) != 0 && (flags & CIRCLE_IMAGE_2) != 0;
+                float radius = circleSize / 2f;
+                float circleY = centerY + textBottom + radius;
+                float circleX = bothCircles ? centerX - radius - circleSpacing / 2f : centerX;
+                if ((flags & CIRCLE_IMAGE_1) != 0) {
+                    circlePaint.setColor(selected ? selectedDayTextColor : style.circleImage1Color);
+                    canvas.drawCircle(circleX, circleY, radius, circlePaint);
+                    circleX += circleSize + circleSpacing;
+                }
+                if ((flags & CIRCLE_IMAGE_2) != 0) {
+                    circlePaint.setColor(selected ? selectedDayTextColor : style.circleImage2Color);
+                    canvas.drawCircle(circleX, circleY, radius, circlePaint);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ranges of days, stored as sorted and merged intervals of days since 1970-01-01
+ * <p>
+ * Overlapping and adjacent ranges are merged when added. Finding the ranges that overlap a month is a binary
+ * search plus one step per range found, so thousands of reservations can be highlighted without marking
+ * each of their days.
+ */
+public final class EpochDayRanges {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] starts = new long[MIN_CAPACITY];
+    private long[] ends = new long[MIN_CAPACITY];
+    private int size;
+
+    public EpochDayRanges() {
+    }
+
+    public EpochDayRanges(@NotNull EpochDayRanges other) {
+        starts = other.starts.clone();
+        ends = other.ends.clone();
+        size = other.size;
+    }
+
+    /**
+     * @return number of ranges, once merged
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return first day of the range at the index, ranges are sorted
+     */
+    public long getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * @return last day of the range at the index, included
+     */
+    public long getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    public boolean contains(long epochDay) {
+        int index = firstEndingFrom(epochDay);
+        return index < size && starts[index] <= epochDay;
+    }
+
+    /**
+     * Add every day from fromEpochDay to toEpochDay, both included
+     */
+    public void add(long fromEpochDay, long toEpochDay) {
+        checkRange(fromEpochDay, toEpochDay);
+
+        // Ranges overlapping or next to the new one are merged into it
+        int first = firstEndingFrom(fromEpochDay == Long.MIN_VALUE ? fromEpochDay : fromEpochDay - 1);
+        int last = first;
+        while (last < size && (toEpochDay == Long.MAX_VALUE || starts[last] <= toEpochDay + 1)) {
+            last++;
+        }
+        if (first == last) {
+            insert(first, fromEpochDay, toEpochDay);
+            return;
+        }
+        starts[first] = Math.min(starts[first], fromEpochDay);
+        ends[first] = Math.max(ends[last - 1], toEpochDay);
+        delete(first + 1, last);
+    }
+
+    /**
+     * Remove every day from fromEpochDay to toEpochDay, both included
+     */
+    public void remove(long fromEpochDay, long toEpochDay) {
+        checkRange(fromEpochDay, toEpochDay);
+        int first = firstEndingFrom(fromEpochDay);
+        if (first == size || starts[first] > toEpochDay) {
+            return;
+        }
+
+        // A range around the removed days is split in two
+        if (starts[first] < fromEpochDay && ends[first] > toEpochDay) {
+            insert(first + 1, toEpochDay + 1, ends[first]);
+            ends[first] = fromEpochDay - 1;
+            return;
+        }
+
+        int last = first;
+        while (last < size && starts[last] <= toEpochDay) {
+            last++;
+        }
+        // Only the first and the last overlapping ranges can keep days
+        if (ends[last - 1] > toEpochDay) {
+            starts[last - 1] = toEpochDay + 1;
+            last--;
+        }
+        if (starts[first] < fromEpochDay) {
+            ends[first] = fromEpochDay - 1;
+            first++;
+        }
+        delete(first, last);
+    }
+
+    /**
+     * @param fromEpochDay, the first day
+     * @param length,       number of days, at most 64
+     * @return bit i set if fromEpochDay + i is in a range
+     */
+    public long getBits(long fromEpochDay, int length) {
+        if (length < 0 || length > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        long bits = 0;
+        long toEpochDay = fromEpochDay + length - 1;
+        for (int i = firstEndingFrom(fromEpochDay); i < size && starts[i] <= toEpochDay; i++) {
+            int from = (int) (Math.max(starts[i], fromEpochDay) - fromEpochDay);
+            int to = (int) (Math.min(ends[i], toEpochDay) - fromEpochDay);
+            bits |= (-1L << from) & (-1L >>> (Long.SIZE - 1 - to));
+        }
+        return bits;
+    }
+
+    /**
+     * @return the first and the last day of every range, one after the other, the encoding read by
+     * {@link #addPackedRanges(long[])}
+     */
+    @NotNull
+    public long[] toPackedRanges() {
+        long[] packedRanges = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+            packedRanges[i * 2] = starts[i];
+            packedRanges[i * 2 + 1] = ends[i];
+        }
+        return packedRanges;
+    }
+
+    /**
+     * Add every range encoded by {@link #toPackedRanges()}
+     */
+    public void addPackedRanges(@NotNull long[] packedRanges) {
+        if ((packedRanges.length & 1) != 0) {
+            throw new IllegalArgumentException("Invalid packed ranges length: " + packedRanges.length);
+        }
+        for (int i = 0; i < packedRanges.length; i += 2) {
+            add(packedRanges[i], packedRanges[i + 1]);
+        }
+    }
+
+    public void clear() {
+        if (starts.length > MIN_CAPACITY) {
+            starts = new long[MIN_CAPACITY];
+            ends = new long[MIN_CAPACITY];
+        }
+        size = 0;
+    }
+
+    /**
+     * @return index of the first range ending on or after the day, or the number of ranges if there is none
+     */
+    private int firstEndingFrom(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insert(int index, long fromEpochDay, long toEpochDay) {
+        if (size == starts.length) {
+            long[] grownStarts = new long[size * 2];
+            long[] grownEnds = new long[size * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, size);
+            System.arraycopy(ends, 0, grownEnds, 0, size);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+        System.arraycopy(starts, index, starts, index + 1, size - index);
+        System.arraycopy(ends, index, ends, index + 1, size - index);
+        starts[index] = fromEpochDay;
+        ends[index] = toEpochDay;
+        size++;
+    }
+
+    /**
+     * Delete the ranges from index from to index to, excluded
+     */
+    private void delete(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        System.arraycopy(starts, to, starts, from, size - to);
+        System.arraycopy(ends, to, ends, from, size - to);
+        size -= to - from;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+    }
+
+    private static void checkRange(long fromEpochDay, long toEpochDay) {
+        if (fromEpochDay > toEpochDay) {
+            throw new IllegalArgumentException("Invalid range: " + fromEpochDay + " to " + toEpochDay);
+        }
+    }
+}
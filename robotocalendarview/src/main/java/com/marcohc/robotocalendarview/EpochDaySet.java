@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Set of days, stored as days since 1970-01-01 in 64 day words of a primitive hash table
+ * <p>
+ * Adding, removing and testing a day is O(1) and a year of days takes a handful of words, so years
+ * of markers can be kept without boxing {@link java.util.Date} or {@link java.util.Calendar} objects.
+ * Words left empty by removals are kept until {@link #clear()}.
+ */
+public final class EpochDaySet {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = (1 << WORD_SHIFT) - 1;
+    private static final int MIN_CAPACITY = 16;
+    // No day maps to this word, so it marks free slots
+    private static final long FREE_WORD = Long.MIN_VALUE;
+
+    private long[] wordIndexes;
+    private long[] words;
+    private int wordCount;
+    private int size;
+
+    public EpochDaySet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public EpochDaySet(@NotNull EpochDaySet other) {
+        wordIndexes = other.wordIndexes.clone();
+        words = other.words.clone();
+        wordCount = other.wordCount;
+        size = other.size;
+    }
+
+    /**
+     * @return number of days in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long epochDay) {
+        int slot = findSlot(epochDay >> WORD_SHIFT);
+        return wordIndexes[slot] != FREE_WORD && (words[slot] & bit(epochDay)) != 0;
+    }
+
+    /**
+     * @return true if the day wasn't in the set
+     */
+    public boolean add(long epochDay) {
+        int slot = getOrCreateSlot(epochDay >> WORD_SHIFT);
+        long word = words[slot];
+        long bit = bit(epochDay);
+        if ((word & bit) != 0) {
+            return false;
+        }
+        words[slot] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if the day was in the set
+     */
+    public boolean remove(long epochDay) {
+        int slot = findSlot(epochDay >> WORD_SHIFT);
+        long word = words[slot];
+        long bit = bit(epochDay);
+        if (wordIndexes[slot] == FREE_WORD || (word & bit) == 0) {
+            return false;
+        }
+        words[slot] = word & ~bit;
+        size--;
+        return true;
+    }
+
+    /**
+     * Add every day from fromEpochDay to toEpochDay, both included
+     */
+    public void addRange(long fromEpochDay, long toEpochDay) {
+        for (long wordIndex = fromEpochDay >> WORD_SHIFT; wordIndex <= toEpochDay >> WORD_SHIFT; wordIndex++) {
+            int slot = getOrCreateSlot(wordIndex);
+            long word = words[slot];
+            long updated = word | rangeMask(wordIndex, fromEpochDay, toEpochDay);
+            size += Long.bitCount(updated) - Long.bitCount(word);
+            words[slot] = updated;
+        }
+    }
+
+    /**
+     * Remove every day from fromEpochDay to toEpochDay, both included
+     */
+    public void removeRange(long fromEpochDay, long toEpochDay) {
+        for (long wordIndex = fromEpochDay >> WORD_SHIFT; wordIndex <= toEpochDay >> WORD_SHIFT; wordIndex++) {
+            int slot = findSlot(wordIndex);
+            if (wordIndexes[slot] != FREE_WORD) {
+                long word = words[slot];
+                long updated = word & ~rangeMask(wordIndex, fromEpochDay, toEpochDay);
+                size -= Long.bitCount(word) - Long.bitCount(updated);
+                words[slot] = updated;
+            }
+        }
+    }
+
+    /**
+     * @return number of days in the set from fromEpochDay to toEpochDay, both included
+     */
+    public int count(long fromEpochDay, long toEpochDay) {
+        int count = 0;
+        for (long wordIndex = fromEpochDay >> WORD_SHIFT; wordIndex <= toEpochDay >> WORD_SHIFT; wordIndex++) {
+            int slot = findSlot(wordIndex);
+            if (wordIndexes[slot] != FREE_WORD) {
+                count += Long.bitCount(words[slot] & rangeMask(wordIndex, fromEpochDay, toEpochDay));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param fromEpochDay, the first day
+     * @param length,       number of days, at most 64
+     * @return bit i set if fromEpochDay + i is in the set
+     */
+    public long getBits(long fromEpochDay, int length) {
+        if (length < 0 || length > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        int offset = (int) (fromEpochDay & WORD_MASK);
+        long bits = getWord(fromEpochDay >> WORD_SHIFT) >>> offset;
+        if (offset != 0 && offset + length > Long.SIZE) {
+            bits |= getWord((fromEpochDay >> WORD_SHIFT) + 1) << (Long.SIZE - offset);
+        }
+        return length == Long.SIZE ? bits : bits & ((1L << length) - 1);
+    }
+
+    /**
+     * @return the word index and the word of every non empty 64 day word, one after the other, the compact
+     * encoding read by {@link #addPackedWords(long[])}
+     */
+    @NotNull
+    public long[] toPackedWords() {
+        int nonEmptyWords = 0;
+        for (int i = 0; i < wordIndexes.length; i++) {
+            if (wordIndexes[i] != FREE_WORD && words[i] != 0) {
+                nonEmptyWords++;
+            }
+        }
+        long[] packedWords = new long[nonEmptyWords * 2];
+        int position = 0;
+        for (int i = 0; i < wordIndexes.length; i++) {
+            if (wordIndexes[i] != FREE_WORD && words[i] != 0) {
+                packedWords[position++] = wordIndexes[i];
+                packedWords[position++] = words[i];
+            }
+        }
+        return packedWords;
+    }
+
+    /**
+     * Add every day of words encoded by {@link #toPackedWords()}
+     */
+    public void addPackedWords(@NotNull long[] packedWords) {
+        if ((packedWords.length & 1) != 0) {
+            throw new IllegalArgumentException("Invalid packed words length: " + packedWords.length);
+        }
+        for (int i = 0; i < packedWords.length; i += 2) {
+            if (packedWords[i] == FREE_WORD) {
+                throw new IllegalArgumentException("Invalid word index: " + packedWords[i]);
+            }
+            addWord(packedWords[i], packedWords[i + 1]);
+        }
+    }
+
+    /**
+     * Add every day of another set
+     */
+    public void addAll(@NotNull EpochDaySet other) {
+        for (int i = 0; i < other.wordIndexes.length; i++) {
+            if (other.wordIndexes[i] != FREE_WORD && other.words[i] != 0) {
+                addWord(other.wordIndexes[i], other.words[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove every day of another set
+     */
+    public void removeAll(@NotNull EpochDaySet other) {
+        for (int i = 0; i < other.wordIndexes.length; i++) {
+            if (other.wordIndexes[i] != FREE_WORD && other.words[i] != 0) {
+                int slot = findSlot(other.wordIndexes[i]);
+                if (wordIndexes[slot] != FREE_WORD) {
+                    long word = words[slot];
+                    long updated = word & ~other.words[i];
+                    size -= Long.bitCount(word) - Long.bitCount(updated);
+                    words[slot] = updated;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        if (wordIndexes.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(wordIndexes, FREE_WORD);
+            Arrays.fill(words, 0);
+        }
+        wordCount = 0;
+        size = 0;
+    }
+
+    private void addWord(long wordIndex, long bits) {
+        int slot = getOrCreateSlot(wordIndex);
+        long word = words[slot];
+        long updated = word | bits;
+        size += Long.bitCount(updated) - Long.bitCount(word);
+        words[slot] = updated;
+    }
+
+    private long getWord(long wordIndex) {
+        int slot = findSlot(wordIndex);
+        return wordIndexes[slot] != FREE_WORD ? words[slot] : 0;
+    }
+
+    private static long bit(long epochDay) {
+        return 1L << (epochDay & WORD_MASK);
+    }
+
+    private static long rangeMask(long wordIndex, long fromEpochDay, long toEpochDay) {
+        long firstDay = wordIndex << WORD_SHIFT;
+        int from = fromEpochDay > firstDay ? (int) (fromEpochDay - firstDay) : 0;
+        int to = toEpochDay < firstDay + WORD_MASK ? (int) (toEpochDay - firstDay) : WORD_MASK;
+        return (-1L << from) & (-1L >>> (WORD_MASK - to));
+    }
+
+    /**
+     * @return the slot holding the word or the free slot where it would go
+     */
+    private int findSlot(long wordIndex) {
+        int mask = wordIndexes.length - 1;
+        int slot = hash(wordIndex) & mask;
+        while (wordIndexes[slot] != FREE_WORD && wordIndexes[slot] != wordIndex) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int getOrCreateSlot(long wordIndex) {
+        int slot = findSlot(wordIndex);
+        if (wordIndexes[slot] == FREE_WORD) {
+            // Keep the table at most half full
+            if ((wordCount + 1) * 2 > wordIndexes.length) {
+                rehash(wordIndexes.length * 2);
+                slot = findSlot(wordIndex);
+            }
+            wordIndexes[slot] = wordIndex;
+            wordCount++;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldWordIndexes = wordIndexes;
+        long[] oldWords = words;
+        allocate(capacity);
+        for (int i = 0; i < oldWordIndexes.length; i++) {
+            if (oldWordIndexes[i] != FREE_WORD) {
+                int slot = findSlot(oldWordIndexes[i]);
+                wordIndexes[slot] = oldWordIndexes[i];
+                words[slot] = oldWords[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        wordIndexes = new long[capacity];
+        words = new long[capacity];
+        Arrays.fill(wordIndexes, FREE_WORD);
+    }
+
+    private static int hash(long wordIndex) {
+        long hash = wordIndex * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
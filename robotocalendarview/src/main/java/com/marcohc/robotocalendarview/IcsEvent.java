@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Calendar;
+
+/**
+ * Days of a VEVENT and its simple recurrence rule, reused for every event of an iCalendar file
+ * <p>
+ * Rules with FREQ, INTERVAL, COUNT, UNTIL, WKST and, for weekly rules, BYDAY without ordinals are expanded.
+ * Events with any other BY part only keep their first occurrence.
+ */
+final class IcsEvent {
+
+    static final int NONE = 0;
+    static final int DAILY = 1;
+    static final int WEEKLY = 2;
+    static final int MONTHLY = 3;
+    static final int YEARLY = 4;
+
+    private static final int MONTHS_IN_YEAR = 12;
+
+    interface OccurrenceHandler {
+
+        /**
+         * @param firstEpochDay, the first day of the occurrence
+         * @param lastEpochDay,  the last day of the occurrence, both included
+         */
+        void onOccurrence(long firstEpochDay, long lastEpochDay);
+    }
+
+    long startEpochDay;
+    int durationDays = 1;
+    int frequency = NONE;
+    int interval = 1;
+    // 0 for no limit
+    int count;
+    long untilEpochDay = Long.MAX_VALUE;
+    // Bit of every Calendar day of the week in BYDAY
+    int byDayMask;
+    int weekStart = Calendar.MONDAY;
+    private long[] excludedEpochDays = new long[4];
+    private int excludedCount;
+
+    void reset() {
+        startEpochDay = 0;
+        durationDays = 1;
+        frequency = NONE;
+        interval = 1;
+        count = 0;
+        untilEpochDay = Long.MAX_VALUE;
+        byDayMask = 0;
+        weekStart = Calendar.MONDAY;
+        excludedCount = 0;
+    }
+
+    void exclude(long epochDay) {
+        if (excludedCount == excludedEpochDays.length) {
+            long[] grown = new long[excludedCount * 2];
+            System.arraycopy(excludedEpochDays, 0, grown, 0, excludedCount);
+            excludedEpochDays = grown;
+        }
+        excludedEpochDays[excludedCount++] = epochDay;
+    }
+
+    /**
+     * Call the handler for every occurrence with a day from fromEpochDay to toEpochDay, both included
+     */
+    void expand(long fromEpochDay, long toEpochDay, @NotNull OccurrenceHandler handler) {
+        // Occurrences starting from here can reach the first day
+        long firstStart = fromEpochDay - durationDays + 1;
+        switch (frequency) {
+            case DAILY:
+                expandPeriodic(interval, firstStart, toEpochDay, handler);
+                break;
+            case WEEKLY:
+                if (byDayMask == 0) {
+                    expandPeriodic(interval * (long) MonthGrid.DAYS_IN_WEEK, firstStart, toEpochDay, handler);
+                } else {
+                    expandWeekDays(firstStart, toEpochDay, handler);
+                }
+                break;
+            case MONTHLY:
+                expandMonthly(interval, firstStart, toEpochDay, handler);
+                break;
+            case YEARLY:
+                expandMonthly(interval * (long) MONTHS_IN_YEAR, firstStart, toEpochDay, handler);
+                break;
+            default:
+                emit(startEpochDay, firstStart, toEpochDay, handler);
+                break;
+        }
+    }
+
+    private void expandPeriodic(long period, long firstStart, long toEpochDay, OccurrenceHandler handler) {
+        // Occurrences are evenly spaced, so the ones before the window are skipped without iterating them
+        long first = firstStart > startEpochDay ? (firstStart - startEpochDay + period - 1) / period : 0;
+        for (long occurrence = first; count == 0 || occurrence < count; occurrence++) {
+            long start = startEpochDay + occurrence * period;
+            if (start > toEpochDay || start > untilEpochDay) {
+                return;
+            }
+            emit(start, firstStart, toEpochDay, handler);
+        }
+    }
+
+    private void expandWeekDays(long firstStart, long toEpochDay, OccurrenceHandler handler) {
+        long period = interval * (long) MonthGrid.DAYS_IN_WEEK;
+        long firstWeekStart = startEpochDay - MonthGrid.getColumn(MonthGrid.dayOfWeekOf(startEpochDay), weekStart);
+        int daysPerWeek = Integer.bitCount(byDayMask);
+        int firstWeekDays = 0;
+        for (int day = 0; day < MonthGrid.DAYS_IN_WEEK; day++) {
+            if (firstWeekStart + day >= startEpochDay && isByDay(firstWeekStart + day)) {
+                firstWeekDays++;
+            }
+        }
+
+        // Whole weeks before the window are skipped, counting their occurrences
+        long week = firstStart > firstWeekStart ? (firstStart - firstWeekStart) / period : 0;
+        long occurrences = week == 0 ? 0 : firstWeekDays + (week - 1) * daysPerWeek;
+        for (; ; week++) {
+            long weekFirstDay = firstWeekStart + week * period;
+            for (int day = 0; day < MonthGrid.DAYS_IN_WEEK; day++) {
+                long start = weekFirstDay + day;
+                if (start < startEpochDay || !isByDay(start)) {
+                    continue;
+                }
+                if (start > toEpochDay || start > untilEpochDay || (count != 0 && occurrences >= count)) {
+                    return;
+                }
+                occurrences++;
+                emit(start, firstStart, toEpochDay, handler);
+            }
+        }
+    }
+
+    private void expandMonthly(long monthPeriod, long firstStart, long toEpochDay, OccurrenceHandler handler) {
+        int startMonthIndex = MonthGrid.monthIndexOf(startEpochDay);
+        int dayOfMonth = MonthGrid.dayOfMonthOf(startEpochDay);
+        // Months without the day are skipped and don't count, so counted rules can't jump ahead
+        long first = 0;
+        if (count == 0 && firstStart > startEpochDay) {
+            first = Math.max(0, (MonthGrid.monthIndexOf(firstStart) - startMonthIndex) / monthPeriod);
+        }
+        int occurrences = 0;
+        for (long step = first; count == 0 || occurrences < count; step++) {
+            long monthIndex = startMonthIndex + step * monthPeriod;
+            int year = (int) MonthGrid.floorDiv(monthIndex, MONTHS_IN_YEAR);
+            int month = (int) (monthIndex - year * (long) MONTHS_IN_YEAR);
+            if (MonthGrid.toEpochDay(year, month, 1) > Math.min(toEpochDay, untilEpochDay)) {
+                return;
+            }
+            if (dayOfMonth > MonthGrid.getDaysInMonth(year, month)) {
+                continue;
+            }
+            long start = MonthGrid.toEpochDay(year, month, dayOfMonth);
+            if (start > toEpochDay || start > untilEpochDay) {
+                return;
+            }
+            occurrences++;
+            emit(start, firstStart, toEpochDay, handler);
+        }
+    }
+
+    private void emit(long start, long firstStart, long toEpochDay, OccurrenceHandler handler) {
+        if (start < firstStart || start > toEpochDay || isExcluded(start)) {
+            return;
+        }
+        handler.onOccurrence(start, start + durationDays - 1);
+    }
+
+    private boolean isByDay(long epochDay) {
+        return (byDayMask & (1 << MonthGrid.dayOfWeekOf(epochDay))) != 0;
+    }
+
+    private boolean isExcluded(long epochDay) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excludedEpochDays[i] == epochDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the events of an iCalendar (.ics) file in the background and marks the days they happen on a calendar
+ * <p>
+ * Events are read one at a time and only their days within the loaded window are counted, so files with hundreds
+ * of thousands of events take a fixed amount of memory. Days marked for the first time are posted every
+ * {@value #BATCH_SIZE} events with {@link RobotoCalendarView#postMarker(long, MarkerType, boolean)}, so the
+ * calendar fills in while the file is read. Simple recurrence rules are expanded, see {@link IcsEvent}.
+ * <p>
+ * A load stops when another one starts, when {@link #cancel()} is called or when the calendar shows a month
+ * outside of the window. Days already posted stay marked.
+ */
+public final class IcsMarkerLoader {
+
+    public static final int MAX_DAYS = 3660;
+
+    static final int BATCH_SIZE = 1000;
+
+    public interface Listener {
+
+        /**
+         * Called on the main thread once the whole file is read, not called for stopped loads
+         *
+         * @param fromEpochDay, the first day of the window
+         * @param dayCounts,    number of events of each day of the window, starting with fromEpochDay
+         */
+        void onLoaded(long fromEpochDay, @NotNull int[] dayCounts);
+
+        /**
+         * Called on the main thread if the file can't be read, not called for stopped loads
+         */
+        void onError(@NotNull IOException exception);
+    }
+
+    private interface InputStreamOpener {
+
+        @NotNull
+        InputStream open() throws IOException;
+    }
+
+    private final RobotoCalendarView robotoCalendarView;
+    private final MarkerType markerType;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * @param robotoCalendarView, the calendar to mark
+     * @param markerType,         the marker shown on the days with events
+     */
+    public IcsMarkerLoader(@NotNull RobotoCalendarView robotoCalendarView, @NotNull MarkerType markerType) {
+        this.robotoCalendarView = robotoCalendarView;
+        this.markerType = markerType;
+    }
+
+    /**
+     * Read a file in the background, stopping the previous load
+     *
+     * @param file,         the iCalendar file
+     * @param fromEpochDay, the first day to mark, as days since 1970-01-01
+     * @param toEpochDay,   the last day to mark, at most {@value #MAX_DAYS} days after the first one
+     * @param listener,     the listener or null
+     */
+    public void load(@NotNull final File file, long fromEpochDay, long toEpochDay, @Nullable Listener listener) {
+        start(new InputStreamOpener() {
+            @NotNull
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        }, fromEpochDay, toEpochDay, listener);
+    }
+
+    /**
+     * Read a stream in the background, stopping the previous load, the stream is closed once read
+     *
+     * @param inputStream,  the iCalendar content, read as UTF-8
+     * @param fromEpochDay, the first day to mark, as days since 1970-01-01
+     * @param toEpochDay,   the last day to mark, at most {@value #MAX_DAYS} days after the first one
+     * @param listener,     the listener or null
+     */
+    public void load(@NotNull final InputStream inputStream, long fromEpochDay, long toEpochDay, @Nullable Listener listener) {
+        start(new InputStreamOpener() {
+            @NotNull
+            @Override
+            public InputStream open() {
+                return inputStream;
+            }
+        }, fromEpochDay, toEpochDay, listener);
+    }
+
+    /**
+     * Stop the load in progress
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private void start(InputStreamOpener inputStreamOpener, long fromEpochDay, long toEpochDay, @Nullable Listener listener) {
+        if (toEpochDay < fromEpochDay || toEpochDay - fromEpochDay >= MAX_DAYS) {
+            throw new IllegalArgumentException("Invalid days: " + fromEpochDay + " to " + toEpochDay);
+        }
+        RobotoCalendarExecutor.execute(new Load(inputStreamOpener, fromEpochDay, toEpochDay, generation.incrementAndGet(), listener));
+    }
+
+    /**
+     * A single read of a file, which runs on the background thread until it ends or is stopped
+     */
+    private final class Load implements Runnable, IcsReader.EventHandler, IcsEvent.OccurrenceHandler {
+
+        private final InputStreamOpener inputStreamOpener;
+        private final long fromEpochDay;
+        private final long toEpochDay;
+        private final int loadGeneration;
+        @Nullable
+        private final Listener listener;
+        private final int[] dayCounts;
+        private final boolean[] postedDays;
+        private int events;
+        private boolean stopped;
+
+        Load(InputStreamOpener inputStreamOpener, long fromEpochDay, long toEpochDay, int loadGeneration, @Nullable Listener listener) {
+            this.inputStreamOpener = inputStreamOpener;
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+            this.loadGeneration = loadGeneration;
+            this.listener = listener;
+            dayCounts = new int[(int) (toEpochDay - fromEpochDay + 1)];
+            postedDays = new boolean[dayCounts.length];
+        }
+
+        @Override
+        public void run() {
+            if (isStopped()) {
+                return;
+            }
+            try (IcsReader icsReader = new IcsReader(inputStreamOpener.open(), TimeZone.getDefault())) {
+                icsReader.read(this);
+            } catch (final IOException exception) {
+                robotoCalendarView.post(() -> {
+                    if (!isStopped() && listener != null) {
+                        listener.onError(exception);
+                    }
+                });
+                return;
+            }
+            if (isStopped()) {
+                return;
+            }
+            postMarkers();
+            robotoCalendarView.post(() -> {
+                if (!isStopped() && listener != null) {
+                    listener.onLoaded(fromEpochDay, dayCounts);
+                }
+            });
+        }
+
+        @Override
+        public boolean onEvent(@NotNull IcsEvent event) {
+            if (isStopped()) {
+                return false;
+            }
+            event.expand(fromEpochDay, toEpochDay, this);
+            if (++events % BATCH_SIZE == 0) {
+                if (!isWindowShown()) {
+                    stopped = true;
+                    return false;
+                }
+                postMarkers();
+            }
+            return true;
+        }
+
+        @Override
+        public void onOccurrence(long firstEpochDay, long lastEpochDay) {
+            long last = Math.min(lastEpochDay, toEpochDay);
+            for (long epochDay = Math.max(firstEpochDay, fromEpochDay); epochDay <= last; epochDay++) {
+                dayCounts[(int) (epochDay - fromEpochDay)]++;
+            }
+        }
+
+        private void postMarkers() {
+            for (int i = 0; i < dayCounts.length; i++) {
+                if (dayCounts[i] != 0 && !postedDays[i]) {
+                    postedDays[i] = true;
+                    robotoCalendarView.postMarker(fromEpochDay + i, markerType, true);
+                }
+            }
+        }
+
+        private boolean isWindowShown() {
+            long firstEpochDay = robotoCalendarView.getShownFirstEpochDay();
+            long lastEpochDay = firstEpochDay + MonthGrid.getDaysInMonth(MonthGrid.yearOf(firstEpochDay), MonthGrid.monthOf(firstEpochDay)) - 1;
+            return firstEpochDay <= toEpochDay && lastEpochDay >= fromEpochDay;
+        }
+
+        /**
+         * Read from the background and the main thread, stopped is only written by the background one
+         */
+        private boolean isStopped() {
+            return stopped || generation.get() != loadGeneration;
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Streams the VEVENTs of an iCalendar file, holding a single unfolded line and a single event at a time
+ * <p>
+ * Only the properties that decide the days of an event are read: DTSTART, DTEND, DURATION, RRULE and EXDATE.
+ * Date times are converted to days of the given time zone.
+ */
+final class IcsReader implements Closeable {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int NO_CHAR = -2;
+    private static final int PROPERTY_START = 0;
+    private static final int PROPERTY_END = 1;
+    private static final int PROPERTY_DURATION = 2;
+    private static final int PROPERTY_RULE = 3;
+    private static final int PROPERTY_EXCLUDED_DATES = 4;
+    private static final String[] WEEK_DAYS = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+
+    interface EventHandler {
+
+        /**
+         * @param event, the event, reused for the next one once this returns
+         * @return false to stop reading
+         */
+        boolean onEvent(@NotNull IcsEvent event);
+    }
+
+    private final Reader reader;
+    private final TimeZone timeZone;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int pendingChar = NO_CHAR;
+    private final StringBuilder line = new StringBuilder();
+    private final IcsEvent event = new IcsEvent();
+    private final Map<String, TimeZone> timeZones = new HashMap<>();
+
+    // DTSTART and DTEND are resolved once the whole event is read, as they come in any order
+    private boolean hasStart;
+    private boolean startIsDate;
+    private long startMillis;
+    private boolean hasEnd;
+    private long endMillis;
+    private boolean hasDuration;
+    private long durationMillis;
+    private boolean unsupportedRule;
+
+    // Result of parseDateTime(), milliseconds of the instant or of the start of the day for dates
+    private long parsedMillis;
+    private boolean parsedIsDate;
+
+    IcsReader(@NotNull InputStream inputStream, @NotNull TimeZone timeZone) {
+        this.reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Read until the end of the stream or until the handler returns false
+     */
+    void read(@NotNull EventHandler handler) throws IOException {
+        boolean inEvent = false;
+        // Components nested in the event, like VALARM, whose properties are skipped
+        int nestedDepth = 0;
+        while (readLine()) {
+            if (startsWith(line, 0, "BEGIN:")) {
+                if (inEvent) {
+                    nestedDepth++;
+                } else if (isValue("BEGIN:VEVENT")) {
+                    inEvent = true;
+                    nestedDepth = 0;
+                    resetEvent();
+                }
+            } else if (startsWith(line, 0, "END:")) {
+                if (!inEvent) {
+                    continue;
+                }
+                if (nestedDepth > 0) {
+                    nestedDepth--;
+                } else if (isValue("END:VEVENT")) {
+                    inEvent = false;
+                    if (finishEvent() && !handler.onEvent(event)) {
+                        return;
+                    }
+                }
+            } else if (inEvent && nestedDepth == 0) {
+                readProperty();
+            }
+        }
+    }
+
+    /**
+     * Close the reader and the stream it reads
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void resetEvent() {
+        event.reset();
+        hasStart = false;
+        hasEnd = false;
+        hasDuration = false;
+        unsupportedRule = false;
+    }
+
+    /**
+     * @return false if the event has no start
+     */
+    private boolean finishEvent() {
+        if (!hasStart) {
+            return false;
+        }
+        long startEpochDay = toEpochDay(startMillis, startIsDate);
+        long lastEpochDay;
+        if (startIsDate) {
+            // Ends of all day events are exclusive
+            if (hasEnd) {
+                lastEpochDay = toEpochDay(endMillis, true) - 1;
+            } else if (hasDuration) {
+                lastEpochDay = startEpochDay + (durationMillis + MonthGrid.MILLIS_PER_DAY - 1) / MonthGrid.MILLIS_PER_DAY - 1;
+            } else {
+                lastEpochDay = startEpochDay;
+            }
+        } else {
+            long endInstant = hasEnd ? endMillis : hasDuration ? startMillis + durationMillis : startMillis;
+            lastEpochDay = endInstant > startMillis ? MonthGrid.toEpochDay(endInstant - 1, timeZone) : startEpochDay;
+        }
+        event.startEpochDay = startEpochDay;
+        event.durationDays = (int) Math.max(1, Math.min(Integer.MAX_VALUE, lastEpochDay - startEpochDay + 1));
+        if (unsupportedRule) {
+            event.frequency = IcsEvent.NONE;
+        }
+        return true;
+    }
+
+    private void readProperty() {
+        int nameEnd = 0;
+        while (nameEnd < line.length() && line.charAt(nameEnd) != ';' && line.charAt(nameEnd) != ':') {
+            nameEnd++;
+        }
+        int property;
+        if (isName(nameEnd, "DTSTART")) {
+            property = PROPERTY_START;
+        } else if (isName(nameEnd, "DTEND")) {
+            property = PROPERTY_END;
+        } else if (isName(nameEnd, "DURATION")) {
+            property = PROPERTY_DURATION;
+        } else if (isName(nameEnd, "RRULE")) {
+            property = PROPERTY_RULE;
+        } else if (isName(nameEnd, "EXDATE")) {
+            property = PROPERTY_EXCLUDED_DATES;
+        } else {
+            return;
+        }
+
+        // Parameters run until the first colon outside of quotes
+        int valueStart = nameEnd;
+        boolean quoted = false;
+        while (valueStart < line.length() && (quoted || line.charAt(valueStart) != ':')) {
+            if (line.charAt(valueStart) == '"') {
+                quoted = !quoted;
+            }
+            valueStart++;
+        }
+        if (valueStart == line.length()) {
+            return;
+        }
+        String timeZoneId = getParameter(nameEnd, valueStart, "TZID=");
+        int valueEnd = line.length();
+        valueStart++;
+
+        switch (property) {
+            case PROPERTY_START:
+                if (parseDateTime(valueStart, valueEnd, timeZoneId)) {
+                    hasStart = true;
+                    startIsDate = parsedIsDate;
+                    startMillis = parsedMillis;
+                }
+                break;
+            case PROPERTY_END:
+                if (parseDateTime(valueStart, valueEnd, timeZoneId)) {
+                    hasEnd = true;
+                    endMillis = parsedMillis;
+                }
+                break;
+            case PROPERTY_DURATION:
+                hasDuration = parseDuration(valueStart, valueEnd);
+                break;
+            case PROPERTY_RULE:
+                parseRule(valueStart, valueEnd);
+                break;
+            default:
+                for (int start = valueStart; start < valueEnd; ) {
+                    int end = indexOf(',', start, valueEnd);
+                    if (parseDateTime(start, end, timeZoneId)) {
+                        event.exclude(toEpochDay(parsedMillis, parsedIsDate));
+                    }
+                    start = end + 1;
+                }
+                break;
+        }
+    }
+
+    private void parseRule(int start, int end) {
+        while (start < end) {
+            int partEnd = indexOf(';', start, end);
+            int equals = indexOf('=', start, partEnd);
+            int valueStart = equals + 1;
+            if (equals == partEnd) {
+                unsupportedRule = true;
+            } else if (isKey(start, equals, "FREQ")) {
+                event.frequency = parseFrequency(valueStart, partEnd);
+                unsupportedRule |= event.frequency == IcsEvent.NONE;
+            } else if (isKey(start, equals, "INTERVAL")) {
+                event.interval = parseInt(valueStart, partEnd);
+                unsupportedRule |= event.interval < 1;
+            } else if (isKey(start, equals, "COUNT")) {
+                event.count = parseInt(valueStart, partEnd);
+                unsupportedRule |= event.count < 1;
+            } else if (isKey(start, equals, "UNTIL")) {
+                if (parseDateTime(valueStart, partEnd, null)) {
+                    event.untilEpochDay = toEpochDay(parsedMillis, parsedIsDate);
+                } else {
+                    unsupportedRule = true;
+                }
+            } else if (isKey(start, equals, "BYDAY")) {
+                for (int day = valueStart; day < partEnd; ) {
+                    int dayEnd = indexOf(',', day, partEnd);
+                    // Ordinals like 1MO or -1FR aren't supported
+                    int dayOfWeek = dayEnd - day == 2 ? parseWeekDay(day) : 0;
+                    if (dayOfWeek == 0) {
+                        unsupportedRule = true;
+                    } else {
+                        event.byDayMask |= 1 << dayOfWeek;
+                    }
+                    day = dayEnd + 1;
+                }
+            } else if (isKey(start, equals, "WKST")) {
+                int dayOfWeek = partEnd - valueStart == 2 ? parseWeekDay(valueStart) : 0;
+                if (dayOfWeek != 0) {
+                    event.weekStart = dayOfWeek;
+                }
+            } else if (!isKey(start, equals, "BYHOUR") && !isKey(start, equals, "BYMINUTE") && !isKey(start, equals, "BYSECOND")) {
+                // Times within the day don't change the days of the event, any other part does
+                unsupportedRule = true;
+            }
+            start = partEnd + 1;
+        }
+
+        if (event.byDayMask != 0) {
+            // Every weekday is a daily rule filtered by day, the same as a weekly one when every day is a candidate
+            if (event.frequency == IcsEvent.DAILY && event.interval == 1) {
+                event.frequency = IcsEvent.WEEKLY;
+            } else if (event.frequency != IcsEvent.WEEKLY) {
+                unsupportedRule = true;
+            }
+        }
+    }
+
+    private int parseFrequency(int start, int end) {
+        if (isKey(start, end, "DAILY")) {
+            return IcsEvent.DAILY;
+        } else if (isKey(start, end, "WEEKLY")) {
+            return IcsEvent.WEEKLY;
+        } else if (isKey(start, end, "MONTHLY")) {
+            return IcsEvent.MONTHLY;
+        } else if (isKey(start, end, "YEARLY")) {
+            return IcsEvent.YEARLY;
+        }
+        return IcsEvent.NONE;
+    }
+
+    /**
+     * @return from {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY} or 0 if it isn't a week day
+     */
+    private int parseWeekDay(int start) {
+        for (int i = 0; i < WEEK_DAYS.length; i++) {
+            if (startsWith(line, start, WEEK_DAYS[i])) {
+                return Calendar.SUNDAY + i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parse a DATE, yyyyMMdd, or a DATE-TIME, yyyyMMddTHHmmss with an optional Z for UTC, into
+     * {@link #parsedMillis} and {@link #parsedIsDate}
+     *
+     * @return false if the value is invalid
+     */
+    private boolean parseDateTime(int start, int end, @Nullable String timeZoneId) {
+        int length = end - start;
+        if (length != 8 && length != 15 && length != 16) {
+            return false;
+        }
+        int year = parseInt(start, start + 4);
+        int month = parseInt(start + 4, start + 6) - 1;
+        int dayOfMonth = parseInt(start + 6, start + 8);
+        if (year < 0 || month < 0 || month > Calendar.DECEMBER || dayOfMonth < 1 || dayOfMonth > MonthGrid.getDaysInMonth(year, month)) {
+            return false;
+        }
+        long dayMillis = MonthGrid.toEpochDay(year, month, dayOfMonth) * MonthGrid.MILLIS_PER_DAY;
+        if (length == 8) {
+            parsedMillis = dayMillis;
+            parsedIsDate = true;
+            return true;
+        }
+
+        int hour = parseInt(start + 9, start + 11);
+        int minute = parseInt(start + 11, start + 13);
+        int second = parseInt(start + 13, start + 15);
+        if (line.charAt(start + 8) != 'T' || hour < 0 || minute < 0 || second < 0) {
+            return false;
+        }
+        long localMillis = dayMillis + ((hour * 60L + minute) * 60L + second) * 1000L;
+        if (length == 16) {
+            if (line.charAt(start + 15) != 'Z') {
+                return false;
+            }
+            parsedMillis = localMillis;
+        } else {
+            // Floating times are times of the calendar's time zone
+            TimeZone zone = timeZoneId != null ? getTimeZone(timeZoneId) : timeZone;
+            parsedMillis = localMillis - zone.getOffset(localMillis - zone.getOffset(localMillis));
+        }
+        parsedIsDate = false;
+        return true;
+    }
+
+    /**
+     * Parse a duration like P1W, P2D or -PT1H30M into {@link #durationMillis}
+     *
+     * @return false if the value is invalid
+     */
+    private boolean parseDuration(int start, int end) {
+        boolean negative = start < end && line.charAt(start) == '-';
+        if (start < end && (line.charAt(start) == '-' || line.charAt(start) == '+')) {
+            start++;
+        }
+        if (start == end || line.charAt(start) != 'P') {
+            return false;
+        }
+        long millis = 0;
+        boolean time = false;
+        long number = -1;
+        for (int i = start + 1; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = (number < 0 ? 0 : number * 10) + (c - '0');
+                continue;
+            }
+            if (c == 'T') {
+                time = true;
+                continue;
+            }
+            if (number < 0) {
+                return false;
+            }
+            if (c == 'W' && !time) {
+                millis += number * 7 * MonthGrid.MILLIS_PER_DAY;
+            } else if (c == 'D' && !time) {
+                millis += number * MonthGrid.MILLIS_PER_DAY;
+            } else if (c == 'H' && time) {
+                millis += number * 60 * 60 * 1000L;
+            } else if (c == 'M' && time) {
+                millis += number * 60 * 1000L;
+            } else if (c == 'S' && time) {
+                millis += number * 1000L;
+            } else {
+                return false;
+            }
+            number = -1;
+        }
+        // A negative duration ends before it starts, so the event keeps its first day only
+        durationMillis = negative ? 0 : millis;
+        return true;
+    }
+
+    private long toEpochDay(long millis, boolean isDate) {
+        return isDate ? MonthGrid.floorDiv(millis, MonthGrid.MILLIS_PER_DAY) : MonthGrid.toEpochDay(millis, timeZone);
+    }
+
+    private TimeZone getTimeZone(String timeZoneId) {
+        TimeZone zone = timeZones.get(timeZoneId);
+        if (zone == null) {
+            zone = TimeZone.getTimeZone(timeZoneId);
+            // Unknown ids, like the Windows names of some exports, give GMT, the calendar's zone is closer
+            if ("GMT".equals(zone.getID()) && !"GMT".equals(timeZoneId)) {
+                zone = timeZone;
+            }
+            timeZones.put(timeZoneId, zone);
+        }
+        return zone;
+    }
+
+    @Nullable
+    private String getParameter(int start, int end, String prefix) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == ';' && startsWith(line, i + 1, prefix)) {
+                int valueStart = i + 1 + prefix.length();
+                int valueEnd = indexOf(';', valueStart, end);
+                if (valueEnd - valueStart >= 2 && line.charAt(valueStart) == '"' && line.charAt(valueEnd - 1) == '"') {
+                    valueStart++;
+                    valueEnd--;
+                }
+                return line.substring(valueStart, valueEnd);
+            }
+        }
+        return null;
+    }
+
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        int c = nextChar();
+        if (c == -1) {
+            return false;
+        }
+        while (c != -1) {
+            if (c == '\n') {
+                // A line starting with a space or a tab continues the previous one
+                int next = nextChar();
+                if (next != ' ' && next != '\t') {
+                    pendingChar = next;
+                    return true;
+                }
+            } else if (c != '\r' && line.length() < MAX_LINE_LENGTH) {
+                line.append((char) c);
+            }
+            c = nextChar();
+        }
+        return true;
+    }
+
+    private int nextChar() throws IOException {
+        if (pendingChar != NO_CHAR) {
+            int c = pendingChar;
+            pendingChar = NO_CHAR;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private boolean isValue(String value) {
+        return line.length() == value.length() && startsWith(line, 0, value);
+    }
+
+    private boolean isName(int nameEnd, String name) {
+        return nameEnd == name.length() && startsWith(line, 0, name);
+    }
+
+    private boolean isKey(int start, int end, String key) {
+        return end - start == key.length() && startsWith(line, start, key);
+    }
+
+    private int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the number or -1 if it isn't one
+     */
+    private int parseInt(int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Names and values of iCalendar are case insensitive
+     */
+    private static boolean startsWith(CharSequence text, int start, String prefix) {
+        if (text.length() - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toUpperCase(text.charAt(start + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
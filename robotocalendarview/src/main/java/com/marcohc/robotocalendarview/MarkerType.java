@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+/**
+ * Markers that can be shown below a day of the month
+ */
+public enum MarkerType {
+
+    /**
+     * First circle, tinted with roboto_calendar_view_circle_1
+     */
+    CIRCLE_1,
+
+    /**
+     * Second circle, tinted with roboto_calendar_view_circle_2
+     */
+    CIRCLE_2
+}
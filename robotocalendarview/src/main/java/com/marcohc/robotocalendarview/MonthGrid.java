@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Layout of a month in a grid of weeks, computed with epoch day arithmetic
+ * <p>
+ * Months are zero based and days of the week follow {@link Calendar#SUNDAY} to
+ * {@link Calendar#SATURDAY}, so values can be passed straight from a {@link Calendar}.
+ * An instance is meant to be reused with {@link #set(int, int, int)}, which doesn't allocate.
+ */
+public final class MonthGrid {
+
+    public static final int DAYS_IN_WEEK = 7;
+    public static final int MAX_ROWS = 6;
+    public static final int MAX_CELLS = DAYS_IN_WEEK * MAX_ROWS;
+    public static final int NO_CELL = -1;
+
+    public static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private static final int MONTHS_IN_YEAR = 12;
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_FROM_ERA_TO_EPOCH = 719468;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private int year;
+    private int month;
+    private int firstDayOfWeek = Calendar.SUNDAY;
+    private long firstEpochDay;
+    private int daysInMonth;
+    private int leadingOffset;
+    private int rowCount;
+
+    public MonthGrid() {
+        set(1970, 0, Calendar.SUNDAY);
+    }
+
+    public MonthGrid(int year, int month, int firstDayOfWeek) {
+        set(year, month, firstDayOfWeek);
+    }
+
+    /**
+     * Compute the grid for the given month
+     *
+     * @param year,           the year
+     * @param month,          the zero based month
+     * @param firstDayOfWeek, the day of the week shown in the first column
+     */
+    public void set(int year, int month, int firstDayOfWeek) {
+        if (month < 0 || month >= MONTHS_IN_YEAR) {
+            throw new IllegalArgumentException("Invalid month: " + month);
+        }
+        if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("Invalid first day of week: " + firstDayOfWeek);
+        }
+        this.year = year;
+        this.month = month;
+        this.firstDayOfWeek = firstDayOfWeek;
+        firstEpochDay = toEpochDay(year, month, 1);
+        daysInMonth = getDaysInMonth(year, month);
+        leadingOffset = getColumn(dayOfWeekOf(firstEpochDay), firstDayOfWeek);
+        rowCount = (leadingOffset + daysInMonth + DAYS_IN_WEEK - 1) / DAYS_IN_WEEK;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getFirstDayOfWeek() {
+        return firstDayOfWeek;
+    }
+
+    public long getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    public long getLastEpochDay() {
+        return firstEpochDay + daysInMonth - 1;
+    }
+
+    public int getDaysInMonth() {
+        return daysInMonth;
+    }
+
+    /**
+     * @return number of empty cells before the first day of the month
+     */
+    public int getLeadingOffset() {
+        return leadingOffset;
+    }
+
+    /**
+     * @return number of empty cells after the last day of the month, in its last row
+     */
+    public int getTrailingOffset() {
+        return rowCount * DAYS_IN_WEEK - leadingOffset - daysInMonth;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param cellIndex, zero based position in the grid
+     * @return the day of the month shown in the cell or 0 if the cell is empty
+     */
+    public int getDayOfMonth(int cellIndex) {
+        int dayOfMonth = cellIndex - leadingOffset + 1;
+        return dayOfMonth >= 1 && dayOfMonth <= daysInMonth ? dayOfMonth : 0;
+    }
+
+    /**
+     * @param cellIndex, zero based position in the grid
+     * @return the epoch day of the cell, outside of the month for empty cells
+     */
+    public long getEpochDay(int cellIndex) {
+        return firstEpochDay + cellIndex - leadingOffset;
+    }
+
+    /**
+     * @return zero based position of the day in the grid or {@link #NO_CELL}
+     */
+    public int getCellIndexOfDayOfMonth(int dayOfMonth) {
+        return dayOfMonth >= 1 && dayOfMonth <= daysInMonth ? leadingOffset + dayOfMonth - 1 : NO_CELL;
+    }
+
+    /**
+     * @return zero based position of the epoch day in the grid or {@link #NO_CELL} if it belongs to another month
+     */
+    public int getCellIndexOfEpochDay(long epochDay) {
+        return contains(epochDay) ? (int) (epochDay - firstEpochDay) + leadingOffset : NO_CELL;
+    }
+
+    public boolean contains(long epochDay) {
+        return epochDay >= firstEpochDay && epochDay < firstEpochDay + daysInMonth;
+    }
+
+    /**
+     * @param dayOfWeek, from {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}
+     * @return zero based column of the day of the week
+     */
+    public int getColumn(int dayOfWeek) {
+        return getColumn(dayOfWeek, firstDayOfWeek);
+    }
+
+    public static int getColumn(int dayOfWeek, int firstDayOfWeek) {
+        return (dayOfWeek - firstDayOfWeek + DAYS_IN_WEEK) % DAYS_IN_WEEK;
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    public static int getDaysInMonth(int year, int month) {
+        return month == 1 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * @param year,       the year
+     * @param month,      the zero based month
+     * @param dayOfMonth, the day of the month
+     * @return days since 1970-01-01
+     */
+    public static long toEpochDay(int year, int month, int dayOfMonth) {
+        int civilMonth = month + 1;
+        long civilYear = civilMonth <= 2 ? year - 1 : year;
+        long era = floorDiv(civilYear, 400);
+        long yearOfEra = civilYear - era * 400;
+        long dayOfYear = (153 * (civilMonth + (civilMonth > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_FROM_ERA_TO_EPOCH;
+    }
+
+    /**
+     * @param timeMillis, milliseconds since 1970-01-01T00:00:00Z
+     * @param timeZone,   the time zone of the day
+     * @return days since 1970-01-01 of the local date at that instant
+     */
+    public static long toEpochDay(long timeMillis, TimeZone timeZone) {
+        return floorDiv(timeMillis + timeZone.getOffset(timeMillis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return milliseconds since 1970-01-01T00:00:00Z when the epoch day starts in the time zone
+     */
+    public static long startOfEpochDay(long epochDay, TimeZone timeZone) {
+        long localMillis = epochDay * MILLIS_PER_DAY;
+        // The offset of the instant itself, found from the offset at the local time
+        long start = localMillis - timeZone.getOffset(localMillis - timeZone.getOffset(localMillis));
+        if (toEpochDay(start, timeZone) >= epochDay && toEpochDay(start - 1, timeZone) < epochDay) {
+            return start;
+        }
+        // Midnight skipped or repeated by a daylight saving transition, search the first instant of the day
+        long low = start - MILLIS_PER_DAY;
+        long high = start + 2 * MILLIS_PER_DAY;
+        while (high - low > 1) {
+            long middle = low + (high - low) / 2;
+            if (toEpochDay(middle, timeZone) >= epochDay) {
+                high = middle;
+            } else {
+                low = middle;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return year * 12 + zero based month of the epoch day
+     */
+    public static int monthIndexOf(long epochDay) {
+        long shifted = epochDay + DAYS_FROM_ERA_TO_EPOCH;
+        long era = floorDiv(shifted, DAYS_PER_ERA);
+        long dayOfEra = shifted - era * DAYS_PER_ERA;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int civilMonth = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (civilMonth <= 2 ? 1 : 0);
+        return (int) (year * MONTHS_IN_YEAR + civilMonth - 1);
+    }
+
+    public static int yearOf(long epochDay) {
+        return (int) floorDiv(monthIndexOf(epochDay), MONTHS_IN_YEAR);
+    }
+
+    /**
+     * @return zero based month of the epoch day
+     */
+    public static int monthOf(long epochDay) {
+        return (int) floorMod(monthIndexOf(epochDay), MONTHS_IN_YEAR);
+    }
+
+    public static int dayOfMonthOf(long epochDay) {
+        int monthIndex = monthIndexOf(epochDay);
+        return (int) (epochDay - toEpochDay((int) floorDiv(monthIndex, MONTHS_IN_YEAR), (int) floorMod(monthIndex, MONTHS_IN_YEAR), 1)) + 1;
+    }
+
+    /**
+     * @return day of the week from {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}
+     */
+    public static int dayOfWeekOf(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) floorMod(epochDay + 4, DAYS_IN_WEEK) + Calendar.SUNDAY;
+    }
+
+    // Math.floorDiv and Math.floorMod need API 24
+    static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return (dividend % divisor != 0 && (dividend < 0) != (divisor < 0)) ? quotient - 1 : quotient;
+    }
+
+    private static long floorMod(long dividend, long divisor) {
+        return dividend - floorDiv(dividend, divisor) * divisor;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Markers of a single month, one bit per day of the month and marker type
+ */
+public final class MonthMarkers {
+
+    private final int year;
+    private final int month;
+    private int circleImage1Days;
+    private int circleImage2Days;
+
+    /**
+     * @param year,  the year
+     * @param month, the zero based month
+     */
+    public MonthMarkers(int year, int month) {
+        this.year = year;
+        this.month = month;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    /**
+     * @param dayOfMonth, from 1 to 31
+     * @param markerType, the marker to show
+     */
+    public void mark(int dayOfMonth, @NotNull MarkerType markerType) {
+        if (dayOfMonth < 1 || dayOfMonth > MonthGrid.getDaysInMonth(year, month)) {
+            throw new IllegalArgumentException("Invalid day of month: " + dayOfMonth);
+        }
+        if (markerType == MarkerType.CIRCLE_1) {
+            circleImage1Days |= 1 << (dayOfMonth - 1);
+        } else {
+            circleImage2Days |= 1 << (dayOfMonth - 1);
+        }
+    }
+
+    public boolean isMarked(int dayOfMonth, @NotNull MarkerType markerType) {
+        return dayOfMonth >= 1 && dayOfMonth <= 31 && (getDays(markerType) & (1 << (dayOfMonth - 1))) != 0;
+    }
+
+    /**
+     * @return bit d - 1 set for every marked day d
+     */
+    public int getDays(@NotNull MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1Days : circleImage2Days;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the markers of a {@link RobotoCalendarView.MarkerProvider} in the background and keeps the most
+ * recently used months
+ * <p>
+ * Everything but {@link RobotoCalendarView.MarkerProvider#loadMarkers(int, int, MonthMarkers)} runs on the
+ * thread of the main executor.
+ */
+final class MonthMarkersLoader {
+
+    static final int CACHE_SIZE = 12;
+    private static final String TAG = "RobotoCalendarView";
+
+    interface Callback {
+
+        void onMonthMarkersLoaded(@NotNull MonthMarkers monthMarkers);
+    }
+
+    private final Map<Integer, MonthMarkers> cache = new LinkedHashMap<Integer, MonthMarkers>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MonthMarkers> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Set<Integer> pendingMonths = new HashSet<>();
+    private final RobotoCalendarView.MarkerProvider markerProvider;
+    private final Executor mainExecutor;
+    private final Callback callback;
+    private int generation;
+
+    MonthMarkersLoader(@NotNull RobotoCalendarView.MarkerProvider markerProvider, @NotNull Executor mainExecutor, @NotNull Callback callback) {
+        this.markerProvider = markerProvider;
+        this.mainExecutor = mainExecutor;
+        this.callback = callback;
+    }
+
+    /**
+     * @return the cached markers of the month or null if they aren't loaded yet
+     */
+    @Nullable
+    MonthMarkers get(int year, int month) {
+        return cache.get(getKey(year, month));
+    }
+
+    /**
+     * Load the markers of the month unless they are cached or already loading
+     */
+    void load(final int year, final int month) {
+        final Integer key = getKey(year, month);
+        if (cache.containsKey(key) || !pendingMonths.add(key)) {
+            return;
+        }
+
+        final int requestGeneration = generation;
+        RobotoCalendarExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MonthMarkers monthMarkers = new MonthMarkers(year, month);
+                boolean loaded;
+                try {
+                    markerProvider.loadMarkers(year, month, monthMarkers);
+                    loaded = true;
+                } catch (RuntimeException exception) {
+                    // The executor is shared with the other calendars, so a failing provider only loses its month
+                    Log.w(TAG, "Markers of " + year + "-" + (month + 1) + " not loaded", exception);
+                    loaded = false;
+                }
+
+                // A failed month stops being pending, so it's loaded again the next time it's shown
+                final boolean cacheable = loaded;
+                mainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestGeneration != generation) {
+                            return;
+                        }
+                        pendingMonths.remove(key);
+                        if (cacheable) {
+                            cache.put(key, monthMarkers);
+                            callback.onMonthMarkersLoaded(monthMarkers);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Forget every cached month and ignore the loads in progress
+     */
+    void clear() {
+        generation++;
+        cache.clear();
+        pendingMonths.clear();
+    }
+
+    private static Integer getKey(int year, int month) {
+        return year * 12 + month;
+    }
+}
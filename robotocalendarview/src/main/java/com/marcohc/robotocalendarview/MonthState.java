@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Calendar;
+
+/**
+ * Immutable snapshot of everything a calendar shows for a month, applied in one pass with
+ * {@link RobotoCalendarView#bind(MonthState)}
+ * <p>
+ * Two states are equal when they show the same, so a list can skip rebinding unchanged months and use
+ * {@link #getKey()} to tell months apart.
+ */
+public final class MonthState {
+
+    private final int year;
+    private final int month;
+    private final int firstDayOfWeek;
+    private final int circleImage1Days;
+    private final int circleImage2Days;
+    private final int selectedDay;
+    private final int today;
+
+    private MonthState(Builder builder) {
+        year = builder.year;
+        month = builder.month;
+        firstDayOfWeek = builder.firstDayOfWeek;
+        circleImage1Days = builder.circleImage1Days;
+        circleImage2Days = builder.circleImage2Days;
+        selectedDay = builder.selectedDay;
+        today = builder.today;
+    }
+
+    /**
+     * @return year * 12 + zero based month, the same for every state of a month
+     */
+    public long getKey() {
+        return year * 12L + month;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getFirstDayOfWeek() {
+        return firstDayOfWeek;
+    }
+
+    /**
+     * @return bit d - 1 set for every marked day d
+     */
+    public int getDays(@NotNull MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1Days : circleImage2Days;
+    }
+
+    /**
+     * @return the selected day of the month or 0 if none is
+     */
+    public int getSelectedDay() {
+        return selectedDay;
+    }
+
+    /**
+     * @return the day of the month shown as today or 0 if today is in another month
+     */
+    public int getToday() {
+        return today;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MonthState)) {
+            return false;
+        }
+        MonthState other = (MonthState) o;
+        return year == other.year
+                && month == other.month
+                && firstDayOfWeek == other.firstDayOfWeek
+                && circleImage1Days == other.circleImage1Days
+                && circleImage2Days == other.circleImage2Days
+                && selectedDay == other.selectedDay
+                && today == other.today;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = year;
+        result = 31 * result + month;
+        result = 31 * result + firstDayOfWeek;
+        result = 31 * result + circleImage1Days;
+        result = 31 * result + circleImage2Days;
+        result = 31 * result + selectedDay;
+        result = 31 * result + today;
+        return result;
+    }
+
+    public static final class Builder {
+
+        private final int year;
+        private final int month;
+        private final int daysInMonth;
+        private int firstDayOfWeek;
+        private int circleImage1Days;
+        private int circleImage2Days;
+        private int selectedDay;
+        private int today;
+
+        /**
+         * Start a state with the first day of the week of the default locale, no markers, no selection
+         * and today taken from the system clock
+         *
+         * @param year,  the year
+         * @param month, the zero based month
+         */
+        public Builder(int year, int month) {
+            this(year, month, RobotoCalendarClock.SYSTEM);
+        }
+
+        /**
+         * Start a state with the first day of the week of the default locale, no markers, no selection
+         * and today taken from the clock, the same given to {@link RobotoCalendarView#setClock(RobotoCalendarClock)}
+         *
+         * @param year,  the year
+         * @param month, the zero based month
+         * @param clock, the source of the current time
+         */
+        public Builder(int year, int month, @NotNull RobotoCalendarClock clock) {
+            if (month < Calendar.JANUARY || month > Calendar.DECEMBER) {
+                throw new IllegalArgumentException("Invalid month: " + month);
+            }
+            this.year = year;
+            this.month = month;
+            daysInMonth = MonthGrid.getDaysInMonth(year, month);
+            firstDayOfWeek = Calendar.getInstance().getFirstDayOfWeek();
+            long firstEpochDay = MonthGrid.toEpochDay(year, month, 1);
+            long todayEpochDay = MonthGrid.toEpochDay(clock.currentTimeMillis(), clock.getTimeZone());
+            if (todayEpochDay >= firstEpochDay && todayEpochDay < firstEpochDay + daysInMonth) {
+                today = (int) (todayEpochDay - firstEpochDay) + 1;
+            }
+        }
+
+        @NotNull
+        public Builder setFirstDayOfWeek(int firstDayOfWeek) {
+            if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY) {
+                throw new IllegalArgumentException("Invalid first day of week: " + firstDayOfWeek);
+            }
+            this.firstDayOfWeek = firstDayOfWeek;
+            return this;
+        }
+
+        /**
+         * @param dayOfMonth, from 1 to the days of the month
+         * @param markerType, the marker to show
+         */
+        @NotNull
+        public Builder mark(int dayOfMonth, @NotNull MarkerType markerType) {
+            int day = checkDayOfMonth(dayOfMonth);
+            if (markerType == MarkerType.CIRCLE_1) {
+                circleImage1Days |= 1 << (day - 1);
+            } else {
+                circleImage2Days |= 1 << (day - 1);
+            }
+            return this;
+        }
+
+        /**
+         * Add the markers loaded by a {@link RobotoCalendarView.MarkerProvider} for the same month
+         */
+        @NotNull
+        public Builder mark(@NotNull MonthMarkers monthMarkers) {
+            if (monthMarkers.getYear() != year || monthMarkers.getMonth() != month) {
+                throw new IllegalArgumentException("Markers of another month: " + monthMarkers.getYear() + "-" + (monthMarkers.getMonth() + 1));
+            }
+            circleImage1Days |= monthMarkers.getDays(MarkerType.CIRCLE_1);
+            circleImage2Days |= monthMarkers.getDays(MarkerType.CIRCLE_2);
+            return this;
+        }
+
+        /**
+         * @param dayOfMonth, from 1 to the days of the month or 0 for no selection
+         */
+        @NotNull
+        public Builder setSelectedDay(int dayOfMonth) {
+            selectedDay = dayOfMonth == 0 ? 0 : checkDayOfMonth(dayOfMonth);
+            return this;
+        }
+
+        /**
+         * @param dayOfMonth, from 1 to the days of the month or 0 if today is in another month
+         */
+        @NotNull
+        public Builder setToday(int dayOfMonth) {
+            today = dayOfMonth == 0 ? 0 : checkDayOfMonth(dayOfMonth);
+            return this;
+        }
+
+        @NotNull
+        public MonthState build() {
+            return new MonthState(this);
+        }
+
+        private int checkDayOfMonth(int dayOfMonth) {
+            if (dayOfMonth < 1 || dayOfMonth > daysInMonth) {
+                throw new IllegalArgumentException("Invalid day of month: " + dayOfMonth);
+            }
+            return dayOfMonth;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Marker and selection changes posted from any thread, merged until the calendar applies them on the next frame
+ * <p>
+ * Posting methods are synchronized. The getters are meant for the instance the changes are moved to with
+ * {@link #moveTo(PendingCalendarChanges)}, which only the main thread reads.
+ */
+final class PendingCalendarChanges {
+
+    static final long NO_DAY = Long.MIN_VALUE;
+
+    private final EpochDaySet circleImage1MarkedDays = new EpochDaySet();
+    private final EpochDaySet circleImage1UnmarkedDays = new EpochDaySet();
+    private final EpochDaySet circleImage2MarkedDays = new EpochDaySet();
+    private final EpochDaySet circleImage2UnmarkedDays = new EpochDaySet();
+    private boolean selectionChanged;
+    private long selectedEpochDay = NO_DAY;
+    private boolean empty = true;
+
+    /**
+     * The last change of a day wins, marking and then unmarking it leaves it unmarked
+     *
+     * @return true if there were no changes before, so applying them has to be scheduled
+     */
+    synchronized boolean setMarked(long epochDay, @NotNull MarkerType markerType, boolean marked) {
+        if (marked) {
+            getMarkedDays(markerType).add(epochDay);
+            getUnmarkedDays(markerType).remove(epochDay);
+        } else {
+            getUnmarkedDays(markerType).add(epochDay);
+            getMarkedDays(markerType).remove(epochDay);
+        }
+        return markChanged();
+    }
+
+    /**
+     * @param epochDay, the day to select or {@link #NO_DAY} to clear the selection
+     * @return true if there were no changes before, so applying them has to be scheduled
+     */
+    synchronized boolean setSelectedDay(long epochDay) {
+        selectionChanged = true;
+        selectedEpochDay = epochDay;
+        return markChanged();
+    }
+
+    /**
+     * Move every change to an empty instance, leaving this one empty
+     */
+    synchronized void moveTo(@NotNull PendingCalendarChanges target) {
+        target.circleImage1MarkedDays.addAll(circleImage1MarkedDays);
+        target.circleImage1UnmarkedDays.addAll(circleImage1UnmarkedDays);
+        target.circleImage2MarkedDays.addAll(circleImage2MarkedDays);
+        target.circleImage2UnmarkedDays.addAll(circleImage2UnmarkedDays);
+        target.selectionChanged = selectionChanged;
+        target.selectedEpochDay = selectedEpochDay;
+        target.empty = empty;
+        clear();
+    }
+
+    synchronized void clear() {
+        circleImage1MarkedDays.clear();
+        circleImage1UnmarkedDays.clear();
+        circleImage2MarkedDays.clear();
+        circleImage2UnmarkedDays.clear();
+        selectionChanged = false;
+        selectedEpochDay = NO_DAY;
+        empty = true;
+    }
+
+    @NotNull
+    EpochDaySet getMarkedDays(@NotNull MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1MarkedDays : circleImage2MarkedDays;
+    }
+
+    @NotNull
+    EpochDaySet getUnmarkedDays(@NotNull MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1UnmarkedDays : circleImage2UnmarkedDays;
+    }
+
+    boolean hasMarkerChanges(@NotNull MarkerType markerType) {
+        return !getMarkedDays(markerType).isEmpty() || !getUnmarkedDays(markerType).isEmpty();
+    }
+
+    boolean isSelectionChanged() {
+        return selectionChanged;
+    }
+
+    long getSelectedEpochDay() {
+        return selectedEpochDay;
+    }
+
+    private boolean markChanged() {
+        boolean wasEmpty = empty;
+        empty = false;
+        return wasEmpty;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Draws ranges of days as bands behind the days of a month, one per run of days in a row, shared by both
+ * rendering modes
+ * <p>
+ * Bands are rounded where a range starts or ends and square where it goes on in the next or the previous row,
+ * so a range reads as a single band wrapping from row to row.
+ */
+final class RangeBandPainter {
+
+    /**
+     * Grid positions of the days in ranges of the shown month, and of those where ranges start and end
+     */
+    static final class Bands {
+
+        long cellMask;
+        long startMask;
+        long endMask;
+
+        /**
+         * @param dayBits,       bit 0 for the day before the month, then bit i for day of the month i and bit
+         *                       daysInMonth + 1 for the day after the month
+         * @param firstDayIndex, grid position of the first day of the month
+         * @param daysInMonth,   number of days in the month
+         */
+        void set(long dayBits, int firstDayIndex, int daysInMonth) {
+            long monthMask = (1L << daysInMonth) - 1;
+            long days = (dayBits >>> 1) & monthMask;
+            long previousDays = dayBits & monthMask;
+            long nextDays = (dayBits >>> 2) & monthMask;
+            cellMask = days << firstDayIndex;
+            startMask = (days & ~previousDays) << firstDayIndex;
+            endMask = (days & ~nextDays) << firstDayIndex;
+        }
+
+        void clear() {
+            cellMask = 0;
+            startMask = 0;
+            endMask = 0;
+        }
+
+        boolean isEmpty() {
+            return cellMask == 0;
+        }
+    }
+
+    final Bands highlightedBands = new Bands();
+    final Bands selectedBands = new Bands();
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF oval = new RectF();
+    private final RobotoCalendarStyle style;
+
+    RangeBandPainter(RobotoCalendarStyle style) {
+        this.style = style;
+        paint.setStyle(Paint.Style.FILL);
+    }
+
+    boolean isEmpty() {
+        return highlightedBands.isEmpty() && selectedBands.isEmpty();
+    }
+
+    /**
+     * @param left,       left of the first column
+     * @param top,        top of the first row
+     * @param cellWidth,  width of a column
+     * @param cellHeight, height of a row
+     */
+    void draw(Canvas canvas, float left, float top, float cellWidth, float cellHeight) {
+        float bandHeight = Math.min(style.dayOfTheMonthBackgroundSize, cellHeight);
+        draw(canvas, left, top, cellWidth, cellHeight, bandHeight, highlightedBands, style.highlightedRangeColor);
+        draw(canvas, left, top, cellWidth, cellHeight, bandHeight, selectedBands, style.selectedRangeColor);
+    }
+
+    private void draw(Canvas canvas, float left, float top, float cellWidth, float cellHeight, float bandHeight, Bands bands, int color) {
+        long cellMask = bands.cellMask;
+        if (cellMask == 0) {
+            return;
+        }
+        paint.setColor(color);
+        float radius = bandHeight / 2f;
+        while (cellMask != 0) {
+            // Run of consecutive days from the lowest one left, cut at the end of its row
+            int first = Long.numberOfTrailingZeros(cellMask);
+            int rowEnd = (first / MonthGrid.DAYS_IN_WEEK + 1) * MonthGrid.DAYS_IN_WEEK;
+            int last = first;
+            while (last + 1 < rowEnd && (cellMask & (1L << (last + 1))) != 0) {
+                last++;
+            }
+            cellMask &= -1L << (last + 1);
+
+            float bandTop = top + (first / MonthGrid.DAYS_IN_WEEK) * cellHeight + (cellHeight - bandHeight) / 2f;
+            float bandBottom = bandTop + bandHeight;
+            float bandLeft = left + (first % MonthGrid.DAYS_IN_WEEK) * cellWidth;
+            float bandRight = left + (last % MonthGrid.DAYS_IN_WEEK + 1) * cellWidth;
+
+            // Half circles at the ends of ranges, centred on their days so they sit under the day backgrounds
+            if ((bands.startMask & (1L << first)) != 0) {
+                bandLeft += cellWidth / 2f;
+                oval.set(bandLeft - radius, bandTop, bandLeft + radius, bandBottom);
+                canvas.drawArc(oval, 90, 180, true, paint);
+            }
+            if ((bands.endMask & (1L << last)) != 0) {
+                bandRight -= cellWidth / 2f;
+                oval.set(bandRight - radius, bandTop, bandRight + radius, bandBottom);
+                canvas.drawArc(oval, 270, 180, true, paint);
+            }
+            if (bandRight > bandLeft) {
+                canvas.drawRect(bandLeft, bandTop, bandRight, bandBottom, paint);
+            }
+        }
+    }
+}
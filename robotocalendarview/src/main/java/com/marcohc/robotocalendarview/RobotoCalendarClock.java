@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.TimeZone;
+
+/**
+ * Source of the current time, which decides the day shown as today
+ * <p>
+ * Replace {@link #SYSTEM} with {@link RobotoCalendarView#setClock(RobotoCalendarClock)}, for example with a fixed
+ * clock in tests.
+ */
+public interface RobotoCalendarClock {
+
+    RobotoCalendarClock SYSTEM = new RobotoCalendarClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @NotNull
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getDefault();
+        }
+    };
+
+    /**
+     * @return milliseconds since 1970-01-01T00:00:00Z
+     */
+    long currentTimeMillis();
+
+    /**
+     * Only read again when the calendar is told the time zone changed
+     */
+    @NotNull
+    TimeZone getTimeZone();
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.HapticFeedbackConstants;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.List;
+
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+/**
+ * Draws the whole day of the month grid on a single canvas, used by the flat rendering mode
+ * instead of inflating one {@link R.layout#roboto_calendar_day_of_the_month_layout} per day
+ */
+class RobotoCalendarDaysView extends View {
+
+    static final int NO_INDEX = -1;
+
+    private static final int CIRCLE_IMAGE_1 = DayOfTheMonthPainter.CIRCLE_IMAGE_1;
+    private static final int CIRCLE_IMAGE_2 = DayOfTheMonthPainter.CIRCLE_IMAGE_2;
+    private static final int HEAT_LEVEL_SHIFT = DayOfTheMonthPainter.HEAT_LEVEL_SHIFT;
+    private static final int HEAT_LEVEL = DayOfTheMonthPainter.HEAT_LEVEL;
+    private static final int SELECTED = DayOfTheMonthPainter.SELECTED;
+    static final String[] DAY_OF_THE_MONTH_LABELS = new String[32];
+
+    static {
+        for (int i = 1; i < DAY_OF_THE_MONTH_LABELS.length; i++) {
+            DAY_OF_THE_MONTH_LABELS[i] = String.valueOf(i);
+        }
+    }
+
+    interface OnDayClickListener {
+
+        void onDayClick(int index);
+
+        void onDayLongClick(int index);
+    }
+
+    private final int[] dayOfTheMonthFlags = new int[MonthGrid.MAX_CELLS];
+    private final DayOfTheMonthPainter dayOfTheMonthPainter;
+    private final GestureDetector gestureDetector;
+    private final DayOfTheMonthAccessibilityHelper accessibilityHelper;
+    private final RobotoCalendarStyle style;
+    private int year;
+    private int month;
+    private int firstDayIndex;
+    private int daysInMonth;
+    private int selectedDayIndex = NO_INDEX;
+    private int currentDayIndex = NO_INDEX;
+    private int clickedIndex = NO_INDEX;
+    @Nullable
+    private OnDayClickListener onDayClickListener;
+    @Nullable
+    private RangeBandPainter rangeBandPainter;
+
+    RobotoCalendarDaysView(Context context, RobotoCalendarStyle style) {
+        this(context, null, style);
+    }
+
+    RobotoCalendarDaysView(Context context, @Nullable AttributeSet attrs, RobotoCalendarStyle style) {
+        super(context, attrs);
+        this.style = style;
+        dayOfTheMonthPainter = new DayOfTheMonthPainter(style);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent event) {
+                return getIndexAt(event.getX(), event.getY()) != NO_INDEX;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent event) {
+                clickedIndex = getIndexAt(event.getX(), event.getY());
+                return clickedIndex != NO_INDEX;
+            }
+
+            @Override
+            public void onLongPress(MotionEvent event) {
+                int index = getIndexAt(event.getX(), event.getY());
+                if (index != NO_INDEX && onDayClickListener != null) {
+                    performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                    onDayClickListener.onDayLongClick(index);
+                }
+            }
+        });
+        setClickable(true);
+
+        // Days are drawn, so they are exposed to accessibility services as virtual views
+        accessibilityHelper = new DayOfTheMonthAccessibilityHelper();
+        ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+    }
+
+    void setOnDayClickListener(@Nullable OnDayClickListener onDayClickListener) {
+        this.onDayClickListener = onDayClickListener;
+    }
+
+    /**
+     * Show a new month, clearing selection and markers
+     *
+     * @param year,          the year
+     * @param month,         the zero based month
+     * @param firstDayIndex, grid position of the first day of the month
+     * @param daysInMonth,   number of days in the month
+     */
+    void setMonth(int year, int month, int firstDayIndex, int daysInMonth) {
+        int previousRows = getRowCount();
+        this.year = year;
+        this.month = month;
+        this.firstDayIndex = firstDayIndex;
+        this.daysInMonth = daysInMonth;
+        selectedDayIndex = NO_INDEX;
+        currentDayIndex = NO_INDEX;
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            dayOfTheMonthFlags[i] = 0;
+        }
+        if (previousRows != getRowCount()) {
+            requestLayout();
+        }
+        invalidate();
+        accessibilityHelper.invalidateRoot();
+    }
+
+    void setSelectedDayIndex(int index) {
+        int previousIndex = selectedDayIndex;
+        selectedDayIndex = index;
+        invalidate();
+        if (previousIndex != NO_INDEX) {
+            accessibilityHelper.invalidateVirtualView(previousIndex);
+        }
+        if (index != NO_INDEX) {
+            accessibilityHelper.invalidateVirtualView(index);
+        }
+    }
+
+    /**
+     * @param index, grid position of the last day of the selected range or {@link #NO_INDEX}
+     */
+    void setSelectedRangeEndIndex(int index) {
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            dayOfTheMonthFlags[i] &= ~SELECTED;
+        }
+        if (index != NO_INDEX) {
+            dayOfTheMonthFlags[index] |= SELECTED;
+        }
+        invalidate();
+    }
+
+    /**
+     * @param rangeBandPainter, draws the ranges behind the days, or null to draw none
+     */
+    void setRangeBandPainter(@Nullable RangeBandPainter rangeBandPainter) {
+        this.rangeBandPainter = rangeBandPainter;
+        invalidate();
+    }
+
+    void setCurrentDayIndex(int index) {
+        currentDayIndex = index;
+        invalidate();
+    }
+
+    void markCircleImage1(int index) {
+        dayOfTheMonthFlags[index] |= CIRCLE_IMAGE_1;
+        invalidate();
+    }
+
+    void markCircleImage2(int index) {
+        dayOfTheMonthFlags[index] |= CIRCLE_IMAGE_2;
+        invalidate();
+    }
+
+    /**
+     * Replace the markers of a type in one pass
+     *
+     * @param cellMask,   bit i set to show the marker in grid position i
+     * @param markerType, the marker to replace
+     */
+    void setMarkers(long cellMask, MarkerType markerType) {
+        int flag = markerType == MarkerType.CIRCLE_1 ? CIRCLE_IMAGE_1 : CIRCLE_IMAGE_2;
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            if ((cellMask & (1L << i)) != 0) {
+                dayOfTheMonthFlags[i] |= flag;
+            } else {
+                dayOfTheMonthFlags[i] &= ~flag;
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * @param level, from 0 for no heat to {@link RobotoCalendarStyle#HEAT_LEVELS}
+     */
+    void setHeatLevel(int index, int level) {
+        dayOfTheMonthFlags[index] = (dayOfTheMonthFlags[index] & ~HEAT_LEVEL) | (level << HEAT_LEVEL_SHIFT);
+        invalidate();
+    }
+
+    int getDayOfMonth(int index) {
+        return index - firstDayIndex + 1;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        int height = getPaddingTop() + getPaddingBottom() + getRowCount() * style.dayOfTheMonthBackgroundSize;
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int backgroundSize = style.dayOfTheMonthBackgroundSize;
+        if (rangeBandPainter != null) {
+            rangeBandPainter.draw(canvas, getPaddingLeft(), getPaddingTop(), getCellWidth(), backgroundSize);
+        }
+        dayOfTheMonthPainter.draw(canvas, getPaddingLeft(), getPaddingTop(), getCellWidth(), backgroundSize, backgroundSize,
+                firstDayIndex, daysInMonth, selectedDayIndex, currentDayIndex, dayOfTheMonthFlags);
+    }
+
+    @Override
+    public boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = gestureDetector.onTouchEvent(event);
+        if (event.getActionMasked() == MotionEvent.ACTION_UP && clickedIndex != NO_INDEX) {
+            performClick();
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        boolean handled = super.performClick();
+        int index = clickedIndex;
+        clickedIndex = NO_INDEX;
+        if (index != NO_INDEX && onDayClickListener != null) {
+            onDayClickListener.onDayClick(index);
+            return true;
+        }
+        return handled;
+    }
+
+    private int getRowCount() {
+        return (firstDayIndex + daysInMonth + MonthGrid.DAYS_IN_WEEK - 1) / MonthGrid.DAYS_IN_WEEK;
+    }
+
+    private float getCellWidth() {
+        return (getWidth() - getPaddingLeft() - getPaddingRight()) / (float) MonthGrid.DAYS_IN_WEEK;
+    }
+
+    private boolean isSelected(int index) {
+        return index == selectedDayIndex || (dayOfTheMonthFlags[index] & SELECTED) != 0;
+    }
+
+    private int getIndexAt(float x, float y) {
+        float cellWidth = getCellWidth();
+        if (cellWidth <= 0 || x < getPaddingLeft() || y < getPaddingTop()) {
+            return NO_INDEX;
+        }
+        int column = (int) ((x - getPaddingLeft()) / cellWidth);
+        int row = (int) ((y - getPaddingTop()) / style.dayOfTheMonthBackgroundSize);
+        int index = row * MonthGrid.DAYS_IN_WEEK + column;
+        if (column >= MonthGrid.DAYS_IN_WEEK || index < firstDayIndex || index >= firstDayIndex + daysInMonth) {
+            return NO_INDEX;
+        }
+        return index;
+    }
+
+    /**
+     * Exposes each day of the month as a virtual view, with its date, selection and click actions, so
+     * TalkBack and Switch Access reach the days as they do the cells of the view based mode
+     */
+    private final class DayOfTheMonthAccessibilityHelper extends ExploreByTouchHelper {
+
+        private final Calendar calendar = Calendar.getInstance();
+        private final Rect bounds = new Rect();
+
+        DayOfTheMonthAccessibilityHelper() {
+            super(RobotoCalendarDaysView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int index = getIndexAt(x, y);
+            return index != NO_INDEX ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int index = firstDayIndex; index < firstDayIndex + daysInMonth; index++) {
+                virtualViewIds.add(index);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int index, AccessibilityNodeInfoCompat node) {
+            calendar.clear();
+            calendar.set(year, month, getDayOfMonth(index));
+            node.setContentDescription(DateFormat.getDateInstance(DateFormat.LONG).format(calendar.getTime()));
+            node.setSelected(isSelected(index));
+            node.setClickable(true);
+            node.setLongClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_LONG_CLICK);
+
+            float cellWidth = getCellWidth();
+            int backgroundSize = style.dayOfTheMonthBackgroundSize;
+            int left = (int) (getPaddingLeft() + (index % MonthGrid.DAYS_IN_WEEK) * cellWidth);
+            int top = getPaddingTop() + (index / MonthGrid.DAYS_IN_WEEK) * backgroundSize;
+            bounds.set(left, top, (int) (left + cellWidth), top + backgroundSize);
+            node.setBoundsInParent(bounds);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int index, int action, @Nullable Bundle arguments) {
+            if (onDayClickListener == null) {
+                return false;
+            }
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                onDayClickListener.onDayClick(index);
+                sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+            }
+            if (action == AccessibilityNodeInfoCompat.ACTION_LONG_CLICK) {
+                onDayClickListener.onDayLongClick(index);
+                sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_LONG_CLICKED);
+                return true;
+            }
+            return false;
+        }
+    }
+}
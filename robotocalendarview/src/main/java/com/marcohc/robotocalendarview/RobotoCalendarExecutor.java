@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single background thread shared by every calendar for work that doesn't belong on the UI thread
+ */
+final class RobotoCalendarExecutor {
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "RobotoCalendarView");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private static volatile ExecutorService executorService;
+
+    private RobotoCalendarExecutor() {
+    }
+
+    static void execute(@NotNull Runnable runnable) {
+        ExecutorService executor = executorService;
+        if (executor == null) {
+            synchronized (RobotoCalendarExecutor.class) {
+                executor = executorService;
+                if (executor == null) {
+                    executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+                    executorService = executor;
+                }
+            }
+        }
+        executor.execute(runnable);
+    }
+}
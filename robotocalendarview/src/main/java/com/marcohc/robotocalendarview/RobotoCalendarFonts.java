@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Typeface;
+import android.util.Log;
+import android.util.SparseArray;
+
+import org.jetbrains.annotations.Nullable;
+
+import androidx.core.content.res.ResourcesCompat;
+import io.github.inflationx.calligraphy3.CalligraphyConfig;
+import io.github.inflationx.calligraphy3.CalligraphyInterceptor;
+import io.github.inflationx.viewpump.ViewPump;
+
+/**
+ * Fonts of the calendar, either typefaces loaded once per font resource or, if the app opts in, the
+ * Calligraphy fontPath styles
+ * <p>
+ * Only used from the main thread.
+ */
+final class RobotoCalendarFonts {
+
+    private static final String TAG = "RobotoCalendarView";
+    // fontPath of the library styles, any other one was set by the app
+    private static final String FONT_PATH_PLACEHOLDER = "fonts/OverrideThisWithYourFontPath";
+
+    private static final SparseArray<Typeface> TYPEFACES = new SparseArray<>();
+    private static boolean viewPumpInitialized;
+    private static boolean fontPathChecked;
+
+    private RobotoCalendarFonts() {
+    }
+
+    /**
+     * @param fontResourceId, the font resource
+     * @return the shared typeface of the font or null if it can't be loaded
+     */
+    @Nullable
+    static Typeface getTypeface(Context context, int fontResourceId) {
+        Typeface typeface = TYPEFACES.get(fontResourceId);
+        if (typeface == null) {
+            typeface = ResourcesCompat.getFont(context, fontResourceId);
+            if (typeface != null) {
+                TYPEFACES.put(fontResourceId, typeface);
+            }
+        }
+        return typeface;
+    }
+
+    /**
+     * Install a process wide ViewPump with the Calligraphy interceptor used by the fontPath styles, only the
+     * first time it's called
+     */
+    static void initViewPump() {
+        if (viewPumpInitialized) {
+            return;
+        }
+        viewPumpInitialized = true;
+        ViewPump.init(
+                ViewPump.builder()
+                        .addInterceptor(new CalligraphyInterceptor(
+                                new CalligraphyConfig.Builder()
+                                        .setFontAttrId(R.attr.fontPath)
+                                        .build()))
+                        .build()
+        );
+    }
+
+    /**
+     * Log once if the app sets the fontPath of the styles without opting in to them, which calendars did on
+     * their own before {@link RobotoCalendarView#initCalligraphy()}
+     */
+    static void checkFontPath(Context context) {
+        if (fontPathChecked || viewPumpInitialized) {
+            return;
+        }
+        fontPathChecked = true;
+        TypedArray typedArray = context.obtainStyledAttributes(R.style.RobotoCalendarDayOfTheMonthText, new int[]{R.attr.fontPath});
+        String fontPath = typedArray.getString(0);
+        typedArray.recycle();
+        if (fontPath != null && !FONT_PATH_PLACEHOLDER.equals(fontPath)) {
+            Log.w(TAG, "The fontPath " + fontPath + " of the RobotoCalendar*Text styles is ignored, call RobotoCalendarView.initCalligraphy()"
+                    + " before the first calendar is inflated or set roboto_calendar_view_font");
+        }
+    }
+
+    /**
+     * @return true if the app opted in to the fontPath styles with {@link RobotoCalendarView#initCalligraphy()}
+     */
+    static boolean isViewPumpInitialized() {
+        return viewPumpInitialized;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Month names, titles and week day headers of a locale, formatted once and shared by every calendar
+ */
+final class RobotoCalendarLabels {
+
+    private static final ConcurrentMap<Locale, RobotoCalendarLabels> LABELS_BY_LOCALE = new ConcurrentHashMap<>();
+    private static final int MONTHS_IN_YEAR = 12;
+    private static final int CACHED_YEARS = 8;
+
+    private final String[] monthNames = new String[MONTHS_IN_YEAR];
+    private final String[] shortWeekDays = new String[Calendar.SATURDAY + 1];
+    private final String[] longWeekDays = new String[Calendar.SATURDAY + 1];
+    private final AtomicReferenceArray<YearTitles> yearTitles = new AtomicReferenceArray<>(CACHED_YEARS);
+
+    private RobotoCalendarLabels(Locale locale) {
+        DateFormatSymbols dateFormatSymbols = new DateFormatSymbols(locale);
+
+        String[] months = dateFormatSymbols.getMonths();
+        for (int i = 0; i < MONTHS_IN_YEAR; i++) {
+            monthNames[i] = capitalize(months[i], months[i].length(), locale);
+        }
+
+        String[] weekDays = dateFormatSymbols.getWeekdays();
+        for (int i = Calendar.SUNDAY; i <= Calendar.SATURDAY; i++) {
+            String weekDay = weekDays[i];
+            // Set Wednesday as "X" in Spanish
+            if (i == Calendar.WEDNESDAY && "ES".equals(locale.getCountry())) {
+                shortWeekDays[i] = "X";
+            } else {
+                shortWeekDays[i] = weekDay.substring(0, Math.min(1, weekDay.length())).toUpperCase(locale);
+            }
+            longWeekDays[i] = capitalize(weekDay, 3, locale);
+        }
+    }
+
+    @NotNull
+    static RobotoCalendarLabels get(@NotNull Locale locale) {
+        RobotoCalendarLabels labels = LABELS_BY_LOCALE.get(locale);
+        if (labels == null) {
+            labels = new RobotoCalendarLabels(locale);
+            RobotoCalendarLabels previous = LABELS_BY_LOCALE.putIfAbsent(locale, labels);
+            if (previous != null) {
+                labels = previous;
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * @param month, the zero based month
+     * @return the capitalized name of the month
+     */
+    @NotNull
+    String getMonthName(int month) {
+        return monthNames[month];
+    }
+
+    /**
+     * @param year,  the year
+     * @param month, the zero based month
+     * @return the capitalized name of the month followed by the year
+     */
+    @NotNull
+    String getTitle(int year, int month) {
+        return getYearTitles(year).titles[month];
+    }
+
+    /**
+     * @return the year alone, the title of the year overview
+     */
+    @NotNull
+    String getTitle(int year) {
+        return getYearTitles(year).yearTitle;
+    }
+
+    /**
+     * @param year,        the year
+     * @param month,       the zero based month
+     * @param currentYear, the year of today
+     * @return the month name alone in the current year, followed by the year in any other
+     */
+    @NotNull
+    String getTitle(int year, int month, int currentYear) {
+        return year == currentYear ? getMonthName(month) : getTitle(year, month);
+    }
+
+    /**
+     * @param dayOfWeek,     from {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}
+     * @param shortWeekDays, true for a single letter, false for three letters
+     */
+    @NotNull
+    String getWeekDay(int dayOfWeek, boolean shortWeekDays) {
+        return shortWeekDays ? this.shortWeekDays[dayOfWeek] : longWeekDays[dayOfWeek];
+    }
+
+    private YearTitles getYearTitles(int year) {
+        int slot = year & (CACHED_YEARS - 1);
+        YearTitles titles = yearTitles.get(slot);
+        if (titles == null || titles.year != year) {
+            titles = new YearTitles(year, monthNames);
+            yearTitles.set(slot, titles);
+        }
+        return titles;
+    }
+
+    private static String capitalize(String text, int length, Locale locale) {
+        if (text.isEmpty()) {
+            return text;
+        }
+        return text.substring(0, 1).toUpperCase(locale) + text.substring(1, Math.min(length, text.length()));
+    }
+
+    private static final class YearTitles {
+
+        final int year;
+        final String yearTitle;
+        final String[] titles = new String[MONTHS_IN_YEAR];
+
+        YearTitles(int year, String[] monthNames) {
+            this.year = year;
+            yearTitle = String.valueOf(year);
+            for (int i = 0; i < MONTHS_IN_YEAR; i++) {
+                titles[i] = monthNames[i] + " " + year;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Draws a month, with its title, week days, today, selection and markers, without inflating a
+ * {@link RobotoCalendarView}, for app widgets or images to share
+ * <p>
+ * Colours, drawables and dimensions come from the theme of the context, the same attributes the calendar
+ * uses. A renderer may be used from a background thread, by one thread at a time.
+ */
+public final class RobotoCalendarRenderer {
+
+    private final RobotoCalendarStyle style;
+    private final DayOfTheMonthPainter dayOfTheMonthPainter;
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint backgroundPaint = new Paint();
+    private final MonthGrid monthGrid = new MonthGrid();
+    private final int[] dayOfTheMonthFlags = new int[MonthGrid.MAX_CELLS];
+    private final Canvas bitmapCanvas = new Canvas();
+    @NotNull
+    private RobotoCalendarClock clock = RobotoCalendarClock.SYSTEM;
+    private boolean shortWeekDays = false;
+    private boolean showDateTitle = true;
+
+    /**
+     * @param context, a context with the theme of the calendars
+     */
+    public RobotoCalendarRenderer(@NotNull Context context) {
+        style = new RobotoCalendarStyle(context);
+        dayOfTheMonthPainter = new DayOfTheMonthPainter(style);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    RobotoCalendarStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * @param typeface, the typeface of every text or null for the default one
+     */
+    public void setTypeface(@Nullable Typeface typeface) {
+        style.typeface = typeface;
+    }
+
+    public void setShortWeekDays(boolean shortWeekDays) {
+        this.shortWeekDays = shortWeekDays;
+    }
+
+    public void showDateTitle(boolean show) {
+        showDateTitle = show;
+    }
+
+    /**
+     * @param clock, the clock that decides the current year of the title, {@link RobotoCalendarClock#SYSTEM} by default
+     */
+    public void setClock(@NotNull RobotoCalendarClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Draw a month into a bitmap
+     *
+     * @param bitmap,     a bitmap to reuse, used if it's mutable and of the given size
+     * @param width,      width of the image
+     * @param height,     height of the image
+     * @param monthState, the month to draw
+     * @return the given bitmap or a new one if it can't be reused
+     */
+    @NotNull
+    public Bitmap render(@Nullable Bitmap bitmap, int width, int height, @NotNull MonthState monthState) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        bitmapCanvas.setBitmap(bitmap);
+        draw(bitmapCanvas, width, height, monthState);
+        bitmapCanvas.setBitmap(null);
+        return bitmap;
+    }
+
+    /**
+     * Draw a month on a canvas, from its top left corner
+     *
+     * @param canvas,     the canvas
+     * @param width,      width of the area to draw in
+     * @param height,     height of the area to draw in
+     * @param monthState, the month to draw
+     */
+    public void draw(@NotNull Canvas canvas, int width, int height, @NotNull MonthState monthState) {
+        monthGrid.set(monthState.getYear(), monthState.getMonth(), monthState.getFirstDayOfWeek());
+        backgroundPaint.setColor(style.backgroundColor);
+        canvas.drawRect(0, 0, width, height, backgroundPaint);
+
+        float left = style.padding;
+        float top = style.padding;
+        float contentWidth = width - 2f * style.padding;
+        float bottom = height - style.padding;
+        RobotoCalendarLabels labels = RobotoCalendarLabels.get(Locale.getDefault());
+        textPaint.setTypeface(style.typeface);
+
+        // Title, as the calendar shows it
+        if (showDateTitle) {
+            int currentYear = MonthGrid.yearOf(MonthGrid.toEpochDay(clock.currentTimeMillis(), clock.getTimeZone()));
+            textPaint.setTextSize(style.monthTextSize);
+            textPaint.setColor(style.monthTextColor);
+            canvas.drawText(labels.getTitle(monthGrid.getYear(), monthGrid.getMonth(), currentYear), left + contentWidth / 2f, top - textPaint.ascent(), textPaint);
+            top += textPaint.descent() - textPaint.ascent() + style.monthMarginBottom;
+        }
+
+        // Week days
+        float cellWidth = contentWidth / MonthGrid.DAYS_IN_WEEK;
+        textPaint.setTextSize(style.dayOfTheWeekTextSize);
+        textPaint.setColor(style.dayOfTheMonthTextColor);
+        for (int dayOfWeek = Calendar.SUNDAY; dayOfWeek <= Calendar.SATURDAY; dayOfWeek++) {
+            float centerX = left + monthGrid.getColumn(dayOfWeek) * cellWidth + cellWidth / 2f;
+            canvas.drawText(labels.getWeekDay(dayOfWeek, shortWeekDays), centerX, top - textPaint.ascent(), textPaint);
+        }
+        top += textPaint.descent() - textPaint.ascent() + style.monthMarginBottom;
+
+        // Days, in rows sharing the height left
+        int leadingOffset = monthGrid.getLeadingOffset();
+        long circleImage1Days = monthState.getDays(MarkerType.CIRCLE_1) & 0xFFFFFFFFL;
+        long circleImage2Days = monthState.getDays(MarkerType.CIRCLE_2) & 0xFFFFFFFFL;
+        for (int index = 0; index < MonthGrid.MAX_CELLS; index++) {
+            int dayBit = index - leadingOffset;
+            int flags = 0;
+            if (dayBit >= 0 && dayBit < monthGrid.getDaysInMonth()) {
+                flags |= (circleImage1Days & (1L << dayBit)) != 0 ? DayOfTheMonthPainter.CIRCLE_IMAGE_1 : 0;
+                flags |= (circleImage2Days & (1L << dayBit)) != 0 ? DayOfTheMonthPainter.CIRCLE_IMAGE_2 : 0;
+            }
+            dayOfTheMonthFlags[index] = flags;
+        }
+        float cellHeight = Math.max(0, bottom - top) / monthGrid.getRowCount();
+        int backgroundSize = (int) Math.min(style.dayOfTheMonthBackgroundSize, Math.min(cellWidth, cellHeight));
+        dayOfTheMonthPainter.draw(canvas, left, top, cellWidth, cellHeight, backgroundSize, leadingOffset, monthGrid.getDaysInMonth(),
+                monthGrid.getCellIndexOfDayOfMonth(monthState.getSelectedDay()), monthGrid.getCellIndexOfDayOfMonth(monthState.getToday()), dayOfTheMonthFlags);
+    }
+}
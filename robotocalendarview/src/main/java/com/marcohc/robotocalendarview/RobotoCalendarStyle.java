@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import com.google.android.material.color.MaterialColors;
+
+/**
+ * Theme colours, drawables and dimensions of a calendar, resolved once and refreshed only when the
+ * configuration or the theme changes
+ */
+final class RobotoCalendarStyle {
+
+    static final int HEAT_LEVELS = 4;
+    private static final int RANGE_ALPHA = 0x40;
+
+    int backgroundColor;
+    int monthTextColor;
+    int monthArrowColor;
+    int dayOfTheMonthTextColor;
+    int selectedDayTextColor;
+    int selectedDayBackgroundColor;
+    int currentDayRingColor;
+    int circleImage1Color;
+    int circleImage2Color;
+    // Translucent, so the days and their markers show through range bands
+    int selectedRangeColor;
+    int highlightedRangeColor;
+
+    ColorStateList dayOfTheMonthTextColorList;
+    ColorStateList selectedDayTextColorList;
+    ColorStateList circleImage1ColorList;
+    ColorStateList circleImage2ColorList;
+
+    Drawable selectedDayDrawable;
+    Drawable selectedRangeEndDrawable;
+    Drawable currentDayDrawable;
+
+    // Circle 1 colour with increasing alpha, indexed by heat level from 1 to HEAT_LEVELS
+    final ColorStateList[] heatLevelColorLists = new ColorStateList[HEAT_LEVELS + 1];
+    final Drawable[] heatLevelDrawables = new Drawable[HEAT_LEVELS + 1];
+
+    int padding;
+    int monthMarginBottom;
+    int dayOfTheMonthBackgroundSize;
+    int circleSize;
+    int circleSpacing;
+    float monthTextSize;
+    float dayOfTheWeekTextSize;
+    float dayOfTheMonthTextSize;
+    int yearMonthSpacing;
+    float yearMonthTextSize;
+    float yearDayOfTheMonthTextSize;
+
+    // Set by the calendar, not resolved from the theme
+    Typeface typeface;
+
+    RobotoCalendarStyle(Context context) {
+        resolve(context);
+    }
+
+    void resolve(Context context) {
+        Resources resources = context.getResources();
+
+        backgroundColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_background_color);
+        monthTextColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_month_text_color);
+        monthArrowColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_month_arrow);
+        dayOfTheMonthTextColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_day_of_the_month_text_color);
+        selectedDayTextColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_selected_day_text_color);
+        selectedDayBackgroundColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_selected_day_background_color);
+        currentDayRingColor = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_current_day_ring);
+        circleImage1Color = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_circle_1);
+        circleImage2Color = getColorCompatFromAttribute(context, R.attr.roboto_calendar_view_circle_2);
+        selectedRangeColor = (RANGE_ALPHA << 24) | (selectedDayBackgroundColor & 0xFFFFFF);
+        highlightedRangeColor = (RANGE_ALPHA << 24) | (circleImage2Color & 0xFFFFFF);
+
+        dayOfTheMonthTextColorList = ColorStateList.valueOf(dayOfTheMonthTextColor);
+        selectedDayTextColorList = ColorStateList.valueOf(selectedDayTextColor);
+        circleImage1ColorList = ColorStateList.valueOf(circleImage1Color);
+        circleImage2ColorList = ColorStateList.valueOf(circleImage2Color);
+
+        // A drawable has a single callback and bounds, so each cell that shows one at the same time gets its own
+        selectedDayDrawable = mutate(context.getDrawable(R.drawable.circle));
+        selectedRangeEndDrawable = mutate(context.getDrawable(R.drawable.circle));
+        currentDayDrawable = mutate(context.getDrawable(R.drawable.ring));
+
+        for (int level = 1; level <= HEAT_LEVELS; level++) {
+            int alpha = 0xFF * level / (HEAT_LEVELS + 1);
+            heatLevelColorLists[level] = ColorStateList.valueOf((alpha << 24) | (circleImage1Color & 0xFFFFFF));
+            heatLevelDrawables[level] = mutate(context.getDrawable(R.drawable.circle));
+            if (heatLevelDrawables[level] != null) {
+                heatLevelDrawables[level].setTintList(heatLevelColorLists[level]);
+            }
+        }
+
+        padding = resources.getDimensionPixelSize(R.dimen.roboto_calendar_padding);
+        monthMarginBottom = resources.getDimensionPixelSize(R.dimen.roboto_calendar_month_margin_bottom);
+        dayOfTheMonthBackgroundSize = resources.getDimensionPixelSize(R.dimen.roboto_calendar_day_of_the_month_background_size);
+        circleSize = resources.getDimensionPixelSize(R.dimen.roboto_calendar_circle_size);
+        circleSpacing = resources.getDimensionPixelSize(R.dimen.roboto_calendar_circle_spacing);
+        monthTextSize = resources.getDimension(R.dimen.roboto_calendar_month_font);
+        dayOfTheWeekTextSize = resources.getDimension(R.dimen.roboto_calendar_day_of_week_font);
+        dayOfTheMonthTextSize = resources.getDimension(R.dimen.roboto_calendar_day_of_the_month_font);
+        yearMonthSpacing = resources.getDimensionPixelSize(R.dimen.roboto_calendar_year_month_spacing);
+        yearMonthTextSize = resources.getDimension(R.dimen.roboto_calendar_year_month_font);
+        yearDayOfTheMonthTextSize = resources.getDimension(R.dimen.roboto_calendar_year_day_of_the_month_font);
+    }
+
+    int getMarkerColor(MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1Color : circleImage2Color;
+    }
+
+    ColorStateList getMarkerColorList(MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1ColorList : circleImage2ColorList;
+    }
+
+    private static Drawable mutate(Drawable drawable) {
+        return drawable == null ? null : drawable.mutate();
+    }
+
+    private static int getColorCompatFromAttribute(Context context, int attributeId) {
+        return MaterialColors.getColor(context, attributeId, Color.RED);
+    }
+}
@@ -15,11 +15,20 @@
  */
 package com.marcohc.robotocalendarview;
 
-import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.graphics.Color;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,102 +36,152 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import com.google.android.material.color.MaterialColors;
 import com.marcohc.robotocalendarview.R;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.text.DateFormatSymbols;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Locale;
-
-import androidx.core.graphics.drawable.DrawableCompat;
-import io.github.inflationx.calligraphy3.CalligraphyConfig;
-import io.github.inflationx.calligraphy3.CalligraphyInterceptor;
-import io.github.inflationx.viewpump.ViewPump;
+import java.util.TimeZone;
 
 public class RobotoCalendarView extends LinearLayout {
 
     private static final String DAY_OF_THE_WEEK_TEXT = "dayOfTheWeekText";
-    private static final String DAY_OF_THE_WEEK_LAYOUT = "dayOfTheWeekLayout";
     private static final String DAY_OF_THE_MONTH_LAYOUT = "dayOfTheMonthLayout";
-    private static final String DAY_OF_THE_MONTH_TEXT = "dayOfTheMonthText";
-    private static final String DAY_OF_THE_MONTH_BACKGROUND = "dayOfTheMonthBackground";
-    private static final String DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 = "dayOfTheMonthCircleImage1";
-    private static final String DAY_OF_THE_MONTH_CIRCLE_IMAGE_2 = "dayOfTheMonthCircleImage2";
+    static final String DAY_OF_THE_MONTH_TEXT = "dayOfTheMonthText";
+    static final String DAY_OF_THE_MONTH_BACKGROUND = "dayOfTheMonthBackground";
+    static final String DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 = "dayOfTheMonthCircleImage1";
+    static final String DAY_OF_THE_MONTH_CIRCLE_IMAGE_2 = "dayOfTheMonthCircleImage2";
+    private static final long NO_DAY = Long.MIN_VALUE;
+    private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+    // Applied state of a day of the month cell, compared to only touch the views that change
+    private static final int CELL_NOT_RENDERED = -1;
+    private static final int CELL_DAY_OF_MONTH = (1 << 6) - 1;
+    private static final int CELL_CURRENT_DAY = 1 << 6;
+    private static final int CELL_SELECTED = 1 << 7;
+    private static final int CELL_CIRCLE_IMAGE_1 = 1 << 8;
+    private static final int CELL_CIRCLE_IMAGE_2 = 1 << 9;
+    private static final int CELL_HIDDEN = 1 << 10;
+    private static final int CELL_HEAT_LEVEL_SHIFT = 11;
+    private static final int CELL_HEAT_LEVEL = 7 << CELL_HEAT_LEVEL_SHIFT;
+    private static final int CELL_SELECTED_RANGE_END = 1 << 14;
+    private static final long NO_MONTH = Long.MIN_VALUE;
 
     private TextView dateTitle;
     private ImageView leftButton;
     private ImageView rightButton;
     private View rootView;
     private ViewGroup robotoCalendarMonthLayout;
-    private RobotoCalendarListener robotoCalendarListener;
-    @NotNull
-    private Calendar currentCalendar = Calendar.getInstance();
+    private final TextView[] dayOfTheWeekTexts = new TextView[MonthGrid.DAYS_IN_WEEK];
+    private final DayOfTheMonthCell[] dayOfTheMonthCells = new DayOfTheMonthCell[MonthGrid.MAX_CELLS];
+    private final int[] dayOfTheMonthCellStates = new int[MonthGrid.MAX_CELLS];
+    private boolean dayOfTheMonthCellsReleased;
     @Nullable
-    private Calendar lastSelectedDayCalendar;
-    private final OnClickListener onDayOfMonthClickListener = new OnClickListener() {
+    private MonthState boundMonthState;
+    @NotNull
+    private RobotoCalendarClock clock = RobotoCalendarClock.SYSTEM;
+    private long todayEpochDay;
+    private long nextDayStartMillis = Long.MIN_VALUE;
+    private final Runnable onDayChangedRunnable = this::onTodayChanged;
+    private final BroadcastReceiver timeChangedReceiver = new BroadcastReceiver() {
         @Override
-        public void onClick(View view) {
-
-            // Extract day selected
-            ViewGroup dayOfTheMonthContainer = (ViewGroup) view;
-            String tagId = (String) dayOfTheMonthContainer.getTag();
-            tagId = tagId.substring(DAY_OF_THE_MONTH_LAYOUT.length(), tagId.length());
-            TextView dayOfTheMonthText = view.findViewWithTag(DAY_OF_THE_MONTH_TEXT + tagId);
-
-            // Extract the day from the text
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.YEAR, currentCalendar.get(Calendar.YEAR));
-            calendar.set(Calendar.MONTH, currentCalendar.get(Calendar.MONTH));
-            calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(dayOfTheMonthText.getText().toString()));
-
-            markDayAsSelectedDay(calendar.getTime());
-
-            // Fire event
-            if (robotoCalendarListener == null) {
-                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
-            } else {
-                robotoCalendarListener.onDayClick(calendar.getTime());
-            }
+        public void onReceive(Context context, Intent intent) {
+            onTodayChanged();
         }
     };
-    private final OnLongClickListener onDayOfMonthLongClickListener = new OnLongClickListener() {
+    @Nullable
+    private View daysContainer;
+    private RobotoCalendarDaysView robotoCalendarDaysView;
+    // Created the first time the year is shown
+    private RobotoCalendarYearView robotoCalendarYearView;
+    private boolean yearMode;
+    private CalendarGridLayout calendarGridLayout;
+    private RobotoCalendarStyle style;
+    private RobotoCalendarListener robotoCalendarListener;
+    @NotNull
+    private Calendar currentCalendar = Calendar.getInstance();
+    private final MonthGrid monthGrid = new MonthGrid();
+    // First day of the shown month, read by background loads
+    private volatile long shownFirstEpochDay;
+    private final EpochDaySet circleImage1Days = new EpochDaySet();
+    private final EpochDaySet circleImage2Days = new EpochDaySet();
+    private long selectedEpochDay = NO_DAY;
+    private long selectedRangeEndEpochDay = NO_DAY;
+    private boolean rangeSelectionEnabled;
+    private final EpochDayRanges highlightedRanges = new EpochDayRanges();
+    private RangeBandPainter rangeBandPainter;
+    private long circleImage1CellMask;
+    private long circleImage2CellMask;
+    // Heat level by day of the month, shown only for the month of heatLevelsMonthKey
+    private final int[] heatLevels = new int[32];
+    private long heatLevelsMonthKey = NO_MONTH;
+    private final RobotoCalendarYearView.OnMonthClickListener onYearMonthClickListener = this::onYearMonthClick;
+    private final OnClickListener onDayOfMonthClickListener = view -> onDayOfMonthClick((Integer) view.getTag(R.id.roboto_calendar_day_index), false);
+    private final OnLongClickListener onDayOfMonthLongClickListener = view -> {
+        onDayOfMonthClick((Integer) view.getTag(R.id.roboto_calendar_day_index), true);
+        return true;
+    };
+    private final RobotoCalendarDaysView.OnDayClickListener onFlatDayOfMonthClickListener = new RobotoCalendarDaysView.OnDayClickListener() {
         @Override
-        public boolean onLongClick(View view) {
-
-            // Extract day selected
-            ViewGroup dayOfTheMonthContainer = (ViewGroup) view;
-            String tagId = (String) dayOfTheMonthContainer.getTag();
-            tagId = tagId.substring(DAY_OF_THE_MONTH_LAYOUT.length(), tagId.length());
-            TextView dayOfTheMonthText = view.findViewWithTag(DAY_OF_THE_MONTH_TEXT + tagId);
-
-            // Extract the day from the text
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.YEAR, currentCalendar.get(Calendar.YEAR));
-            calendar.set(Calendar.MONTH, currentCalendar.get(Calendar.MONTH));
-            calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(dayOfTheMonthText.getText().toString()));
-
-            markDayAsSelectedDay(calendar.getTime());
+        public void onDayClick(int index) {
+            onDayOfMonthClick(index, false);
+        }
 
-            // Fire event
-            if (robotoCalendarListener == null) {
-                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
-            } else {
-                robotoCalendarListener.onDayLongClick(calendar.getTime());
-            }
-            return true;
+        @Override
+        public void onDayLongClick(int index) {
+            onDayOfMonthClick(index, true);
         }
     };
+    @Nullable
+    private DayClickListener dayClickListener;
     private boolean shortWeekDays = false;
+    @Nullable
+    private String shownTitle;
+    @Nullable
+    private Locale weekDaysLocale;
+    private int weekDaysFirstDayOfWeek;
+    private boolean weekDaysShort;
+    private boolean flatMode = false;
+    @Nullable
+    private MonthMarkersLoader monthMarkersLoader;
+    @Nullable
+    private CalendarMetricsListener calendarMetricsListener;
+    private long inflateDurationNanos = NOT_MEASURED;
+    private int inflatedDayViews;
+    private final PendingCalendarChanges pendingChanges = new PendingCalendarChanges();
+    private final PendingCalendarChanges applyingChanges = new PendingCalendarChanges();
+    @Nullable
+    private Choreographer choreographer;
+    private final Choreographer.FrameCallback applyPendingChangesCallback = frameTimeNanos -> applyPendingChanges();
+    private final MonthMarkersLoader.Callback onMonthMarkersLoadedCallback = monthMarkers -> {
+        if (monthMarkers.getYear() == monthGrid.getYear() && monthMarkers.getMonth() == monthGrid.getMonth()) {
+            renderMarkers();
+        } else if (yearMode && monthMarkers.getYear() == currentCalendar.get(Calendar.YEAR)) {
+            renderYear();
+        }
+    };
 
     public RobotoCalendarView(Context context) {
         super(context);
         init(null);
     }
 
+    /**
+     * Create a calendar programmatically
+     *
+     * @param flatMode, true to draw the days of the month on a single canvas instead of inflating a layout per day
+     */
+    public RobotoCalendarView(Context context, boolean flatMode) {
+        super(context);
+        this.flatMode = flatMode;
+        init(null);
+    }
+
     public RobotoCalendarView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         init(attrs);
@@ -133,82 +192,48 @@ public class RobotoCalendarView extends LinearLayout {
         init(attrs);
     }
 
-    private static String checkSpecificLocales(String dayOfTheWeekString, int i) {
-        // Set Wednesday as "X" in Spanish Locale.getDefault()
-        if (i == 4 && "ES".equals(Locale.getDefault().getCountry())) {
-            dayOfTheWeekString = "X";
-        } else {
-            dayOfTheWeekString = dayOfTheWeekString.substring(0, 1).toUpperCase();
-        }
-        return dayOfTheWeekString;
-    }
-
-    private static int getDayIndexByDate(Calendar currentCalendar) {
-        int monthOffset = getMonthOffset(currentCalendar);
-        int currentDay = currentCalendar.get(Calendar.DAY_OF_MONTH);
-        return currentDay + monthOffset;
+    private static long toEpochDay(Calendar calendar) {
+        return MonthGrid.toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
     }
 
-    private static int getMonthOffset(Calendar currentCalendar) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(currentCalendar.getTime());
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        int firstDayWeekPosition = calendar.getFirstDayOfWeek();
-        int dayPosition = calendar.get(Calendar.DAY_OF_WEEK);
-
-        if (firstDayWeekPosition == 1) {
-            return dayPosition - 1;
-        } else {
+    private void init(@Nullable AttributeSet set) {
 
-            if (dayPosition == 1) {
-                return 6;
-            } else {
-                return dayPosition - 2;
-            }
+        if (isInEditMode()) {
+            return;
         }
-    }
-
-    private static int getWeekIndex(int weekIndex, Calendar currentCalendar) {
-        int firstDayWeekPosition = currentCalendar.getFirstDayOfWeek();
-
-        if (firstDayWeekPosition == 1) {
-            return weekIndex;
-        } else {
 
-            if (weekIndex == 1) {
-                return 7;
-            } else {
-                return weekIndex - 1;
-            }
+        int fontResourceId = 0;
+        if (set != null) {
+            TypedArray typedArray = getContext().obtainStyledAttributes(set, R.styleable.RobotoCalendarView);
+            flatMode = typedArray.getBoolean(R.styleable.RobotoCalendarView_roboto_calendar_view_flat_mode, flatMode);
+            fontResourceId = typedArray.getResourceId(R.styleable.RobotoCalendarView_roboto_calendar_view_font, 0);
+            typedArray.recycle();
         }
-    }
-
-    private static boolean areInTheSameDay(@NotNull Calendar calendarOne, @NotNull Calendar calendarTwo) {
-        return calendarOne.get(Calendar.YEAR) == calendarTwo.get(Calendar.YEAR) && calendarOne.get(Calendar.DAY_OF_YEAR) == calendarTwo.get(Calendar.DAY_OF_YEAR);
-    }
-
-    private void init(@Nullable AttributeSet set) {
 
-        if (isInEditMode()) {
-            return;
+        style = new RobotoCalendarStyle(getContext());
+        // Known before the cells are taken from the pool, which skips the fontPath styles for it
+        if (fontResourceId != 0) {
+            style.typeface = RobotoCalendarFonts.getTypeface(getContext(), fontResourceId);
+        } else {
+            RobotoCalendarFonts.checkFontPath(getContext());
         }
+        rangeBandPainter = new RangeBandPainter(style);
+        choreographer = Choreographer.getInstance();
 
         LayoutInflater inflate = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        // Always measured, the listener can only be set once the calendar exists
+        Trace.beginSection(CalendarPhase.INFLATE.sectionName);
+        long inflateStartNanos = System.nanoTime();
         rootView = inflate.inflate(R.layout.roboto_calendar_view_layout, this, true);
         findViewsById(rootView);
+        inflateDurationNanos = System.nanoTime() - inflateStartNanos;
+        Trace.endSection();
         setUpEventListeners();
 
+        setTypeface(style.typeface);
+
         currentCalendar = Calendar.getInstance();
         setDate(currentCalendar.getTime());
-
-        ViewPump.init(
-                ViewPump.builder()
-                        .addInterceptor(new CalligraphyInterceptor(
-                                new CalligraphyConfig.Builder()
-                                        .setFontAttrId(R.attr.fontPath)
-                                        .build()))
-                        .build()
-        );
     }
 
     /**
@@ -226,305 +251,1423 @@ public class RobotoCalendarView extends LinearLayout {
         return currentCalendar.getTime();
     }
 
+    /**
+     * @return the selected day, the first day of the range when a range is selected
+     */
     @Nullable
     public Date getSelectedDay() {
-        return lastSelectedDayCalendar.getTime();
+        return toDate(selectedEpochDay);
+    }
+
+    /**
+     * @return the last day of the selected range or null if no range is complete
+     */
+    @Nullable
+    public Date getSelectedRangeEnd() {
+        return toDate(selectedRangeEndEpochDay);
+    }
+
+    @Nullable
+    private static Date toDate(long epochDay) {
+        if (epochDay == NO_DAY) {
+            return null;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(MonthGrid.yearOf(epochDay), MonthGrid.monthOf(epochDay), MonthGrid.dayOfMonthOf(epochDay));
+        return calendar.getTime();
     }
 
     public void markDayAsSelectedDay(@NotNull Date date) {
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(date);
+        selectDay(toEpochDay(calendar));
+    }
+
+    private void selectDay(long epochDay) {
+        long startNanos = beginPhase(CalendarPhase.SELECT_DAY);
 
         // Clear previous current day mark
         clearSelectedDay();
 
-        // Store current values as last values
-        lastSelectedDayCalendar = calendar;
-
-        // Mark current day as selected
-        ViewGroup dayOfTheMonthBackground = getDayOfMonthBackground(calendar);
-        dayOfTheMonthBackground.setBackgroundResource(R.drawable.circle);
-
-        TextView dayOfTheMonth = getDayOfMonthText(calendar);
-        dayOfTheMonth.setTextColor(getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_selected_day_text_color));
-
-        ImageView circleImage1 = getCircleImage1(calendar);
-        ImageView circleImage2 = getCircleImage2(calendar);
-        int selectedDayColor = getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_selected_day_text_color);
-        if (circleImage1.getVisibility() == VISIBLE) {
-            DrawableCompat.setTint(circleImage1.getDrawable(), selectedDayColor);
-        }
-
-        if (circleImage2.getVisibility() == VISIBLE) {
-            DrawableCompat.setTint(circleImage2.getDrawable(), selectedDayColor);
+        // Store the day as the selected one and mark it, if it's in the current month
+        selectedEpochDay = epochDay;
+        int index = monthGrid.getCellIndexOfEpochDay(selectedEpochDay);
+        if (index != MonthGrid.NO_CELL) {
+            if (robotoCalendarDaysView != null) {
+                robotoCalendarDaysView.setSelectedDayIndex(index);
+            } else {
+                renderCell(index, getCurrentDayIndex());
+            }
         }
+        renderYear();
+        endPhase(CalendarPhase.SELECT_DAY, startNanos, 1);
     }
 
+    /**
+     * Clear the selected day, or the selected range
+     */
     public void clearSelectedDay() {
-        if (lastSelectedDayCalendar != null) {
-            ViewGroup dayOfTheMonthBackground = getDayOfMonthBackground(lastSelectedDayCalendar);
-
-            // If it's today, keep the current day style
-            Calendar nowCalendar = Calendar.getInstance();
-            if (nowCalendar.get(Calendar.YEAR) == lastSelectedDayCalendar.get(Calendar.YEAR) && nowCalendar.get(Calendar.DAY_OF_YEAR) == lastSelectedDayCalendar.get(Calendar.DAY_OF_YEAR)) {
-                dayOfTheMonthBackground.setBackgroundResource(R.drawable.ring);
-            } else {
-                dayOfTheMonthBackground.setBackgroundResource(android.R.color.transparent);
-            }
-
-            TextView dayOfTheMonth = getDayOfMonthText(lastSelectedDayCalendar);
-            dayOfTheMonth.setTextColor(getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_day_of_the_month_text_color));
-
-            ImageView circleImage1 = getCircleImage1(lastSelectedDayCalendar);
-            ImageView circleImage2 = getCircleImage2(lastSelectedDayCalendar);
-            if (circleImage1.getVisibility() == VISIBLE) {
-                DrawableCompat.setTint(circleImage1.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_circle_1));
+        int index = monthGrid.getCellIndexOfEpochDay(selectedEpochDay);
+        int rangeEndIndex = monthGrid.getCellIndexOfEpochDay(selectedRangeEndEpochDay);
+        boolean rangeSelected = selectedRangeEndEpochDay != NO_DAY;
+        selectedEpochDay = NO_DAY;
+        selectedRangeEndEpochDay = NO_DAY;
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.setSelectedDayIndex(RobotoCalendarDaysView.NO_INDEX);
+            robotoCalendarDaysView.setSelectedRangeEndIndex(RobotoCalendarDaysView.NO_INDEX);
+        } else {
+            // If it's today, the cell goes back to the current day style
+            if (index != MonthGrid.NO_CELL) {
+                renderCell(index, getCurrentDayIndex());
             }
-
-            if (circleImage2.getVisibility() == VISIBLE) {
-                DrawableCompat.setTint(circleImage2.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_circle_2));
+            if (rangeEndIndex != MonthGrid.NO_CELL) {
+                renderCell(rangeEndIndex, getCurrentDayIndex());
             }
         }
+        if (rangeSelected) {
+            renderRanges();
+        }
+        renderYear();
     }
 
-    public void setShortWeekDays(boolean shortWeekDays) {
-        this.shortWeekDays = shortWeekDays;
+    /**
+     * Select ranges of days instead of single days: a click selects the first day of a range, the next click
+     * its last day and the one after starts a new range, see {@link RobotoCalendarListener#onRangeSelected(Date, Date)}
+     * <p>
+     * The selection is cleared, and while enabled it's kept when the arrows change the month so a range can
+     * span months.
+     *
+     * @param enabled, true to select ranges, false to select single days
+     */
+    public void setRangeSelectionEnabled(boolean enabled) {
+        clearSelectedDay();
+        rangeSelectionEnabled = enabled;
     }
 
-    public void markCircleImage1(@NotNull Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        ImageView circleImage1 = getCircleImage1(calendar);
-        circleImage1.setVisibility(View.VISIBLE);
-        if (lastSelectedDayCalendar != null && areInTheSameDay(calendar, lastSelectedDayCalendar)) {
-            DrawableCompat.setTint(circleImage1.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_selected_day_text_color));
-        } else {
-            DrawableCompat.setTint(circleImage1.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_circle_1));
-        }
+    public boolean isRangeSelectionEnabled() {
+        return rangeSelectionEnabled;
     }
 
-    public void markCircleImage2(@NotNull Date date) {
+    /**
+     * Select a range of days, both included, the days are swapped if the last one comes first
+     *
+     * @param startDate, the first day
+     * @param endDate,   the last day
+     */
+    public void selectRange(@NotNull Date startDate, @NotNull Date endDate) {
         Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        ImageView circleImage2 = getCircleImage2(calendar);
-        circleImage2.setVisibility(View.VISIBLE);
-        if (lastSelectedDayCalendar != null && areInTheSameDay(calendar, lastSelectedDayCalendar)) {
-            DrawableCompat.setTint(circleImage2.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_selected_day_text_color));
-        } else {
-            DrawableCompat.setTint(circleImage2.getDrawable(), getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_circle_2));
-        }
+        calendar.setTime(startDate);
+        long startEpochDay = toEpochDay(calendar);
+        calendar.setTime(endDate);
+        selectRange(startEpochDay, toEpochDay(calendar));
     }
 
-    public void showDateTitle(boolean show) {
-        if (show) {
-            robotoCalendarMonthLayout.setVisibility(VISIBLE);
+    /**
+     * Select a range of days, both included, the days are swapped if the last one comes first
+     *
+     * @param startEpochDay, the first day, as days since 1970-01-01
+     * @param endEpochDay,   the last day, as days since 1970-01-01
+     */
+    public void selectRange(long startEpochDay, long endEpochDay) {
+        if (startEpochDay == NO_DAY || endEpochDay == NO_DAY) {
+            throw new IllegalArgumentException("Invalid range: " + startEpochDay + " to " + endEpochDay);
+        }
+        long startNanos = beginPhase(CalendarPhase.SELECT_DAY);
+        clearSelectedDay();
+        selectedEpochDay = Math.min(startEpochDay, endEpochDay);
+        selectedRangeEndEpochDay = Math.max(startEpochDay, endEpochDay);
+
+        int index = monthGrid.getCellIndexOfEpochDay(selectedEpochDay);
+        int rangeEndIndex = monthGrid.getCellIndexOfEpochDay(selectedRangeEndEpochDay);
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.setSelectedDayIndex(index);
+            robotoCalendarDaysView.setSelectedRangeEndIndex(rangeEndIndex);
         } else {
-            robotoCalendarMonthLayout.setVisibility(GONE);
+            if (index != MonthGrid.NO_CELL) {
+                renderCell(index, getCurrentDayIndex());
+            }
+            if (rangeEndIndex != MonthGrid.NO_CELL) {
+                renderCell(rangeEndIndex, getCurrentDayIndex());
+            }
         }
+        renderRanges();
+        renderYear();
+        endPhase(CalendarPhase.SELECT_DAY, startNanos, 2);
     }
 
-    public void setRobotoCalendarListener(RobotoCalendarListener robotoCalendarListener) {
-        this.robotoCalendarListener = robotoCalendarListener;
+    /**
+     * Highlight a range of days, for example a reservation, it's kept and shown whenever its months are
+     * <p>
+     * Ranges are stored merged, see {@link EpochDayRanges}, so any number of them costs the shown month only
+     * the ranges that overlap it.
+     *
+     * @param fromEpochDay, the first day, as days since 1970-01-01
+     * @param toEpochDay,   the last day, included
+     */
+    public void addHighlightedRange(long fromEpochDay, long toEpochDay) {
+        highlightedRanges.add(fromEpochDay, toEpochDay);
+        renderRanges();
+        renderYear();
     }
 
-    private void findViewsById(View view) {
-
-        robotoCalendarMonthLayout = view.findViewById(R.id.robotoCalendarDateTitleContainer);
-        leftButton = view.findViewById(R.id.leftButton);
-        rightButton = view.findViewById(R.id.rightButton);
-        dateTitle = view.findViewById(R.id.monthText);
-
-        LayoutInflater inflate = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        for (int i = 0; i < 42; i++) {
-
-            int weekIndex = (i % 7) + 1;
-            ViewGroup dayOfTheWeekLayout = view.findViewWithTag(DAY_OF_THE_WEEK_LAYOUT + weekIndex);
-
-            // Create day of the month
-            @SuppressLint("InflateParams")
-            View dayOfTheMonthLayout = inflate.inflate(R.layout.roboto_calendar_day_of_the_month_layout, null);
-            View dayOfTheMonthText = dayOfTheMonthLayout.findViewWithTag(DAY_OF_THE_MONTH_TEXT);
-            View dayOfTheMonthBackground = dayOfTheMonthLayout.findViewWithTag(DAY_OF_THE_MONTH_BACKGROUND);
-            View dayOfTheMonthCircleImage1 = dayOfTheMonthLayout.findViewWithTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_1);
-            View dayOfTheMonthCircleImage2 = dayOfTheMonthLayout.findViewWithTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_2);
-
-            // Set tags to identify them
-            int viewIndex = i + 1;
-            dayOfTheMonthLayout.setTag(DAY_OF_THE_MONTH_LAYOUT + viewIndex);
-            dayOfTheMonthText.setTag(DAY_OF_THE_MONTH_TEXT + viewIndex);
-            dayOfTheMonthBackground.setTag(DAY_OF_THE_MONTH_BACKGROUND + viewIndex);
-            dayOfTheMonthCircleImage1.setTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 + viewIndex);
-            dayOfTheMonthCircleImage2.setTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_2 + viewIndex);
-
-            dayOfTheWeekLayout.addView(dayOfTheMonthLayout);
-        }
+    /**
+     * Stop highlighting a range of days, parts of highlighted ranges outside of it stay highlighted
+     *
+     * @param fromEpochDay, the first day, as days since 1970-01-01
+     * @param toEpochDay,   the last day, included
+     */
+    public void removeHighlightedRange(long fromEpochDay, long toEpochDay) {
+        highlightedRanges.remove(fromEpochDay, toEpochDay);
+        renderRanges();
+        renderYear();
     }
 
-    private void setUpEventListeners() {
-
-        leftButton.setOnClickListener(view -> {
-            if (robotoCalendarListener == null) {
-                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
-            }
-
-            // Decrease month
-            currentCalendar.add(Calendar.MONTH, -1);
-            lastSelectedDayCalendar = null;
-            updateView();
-            robotoCalendarListener.onLeftButtonClick();
-        });
-
-        rightButton.setOnClickListener(view -> {
-            if (robotoCalendarListener == null) {
-                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
-            }
-
-            // Increase month
-            currentCalendar.add(Calendar.MONTH, 1);
-            lastSelectedDayCalendar = null;
-            updateView();
-            robotoCalendarListener.onRightButtonClick();
-        });
+    /**
+     * Replace every highlighted range in one pass
+     *
+     * @param ranges, the ranges to highlight, copied
+     */
+    public void setHighlightedRanges(@NotNull EpochDayRanges ranges) {
+        highlightedRanges.clear();
+        highlightedRanges.addPackedRanges(ranges.toPackedRanges());
+        renderRanges();
+        renderYear();
     }
 
-    private void setUpMonthLayout() {
-        String dateText = new DateFormatSymbols(Locale.getDefault()).getMonths()[currentCalendar.get(Calendar.MONTH)];
-        dateText = dateText.substring(0, 1).toUpperCase() + dateText.subSequence(1, dateText.length());
-        Calendar calendar = Calendar.getInstance();
-        if (currentCalendar.get(Calendar.YEAR) == calendar.get(Calendar.YEAR)) {
-            dateTitle.setText(dateText);
-        } else {
-            dateTitle.setText(String.format("%s %s", dateText, currentCalendar.get(Calendar.YEAR)));
+    public void clearHighlightedRanges() {
+        if (highlightedRanges.isEmpty()) {
+            return;
         }
+        highlightedRanges.clear();
+        renderRanges();
+        renderYear();
     }
 
-    private void setUpWeekDaysLayout() {
-        TextView dayOfWeek;
-        String dayOfTheWeekString;
-        String[] weekDaysArray = new DateFormatSymbols(Locale.getDefault()).getWeekdays();
-        int length = weekDaysArray.length;
-        for (int i = 1; i < length; i++) {
-            dayOfWeek = rootView.findViewWithTag(DAY_OF_THE_WEEK_TEXT + getWeekIndex(i, currentCalendar));
-            dayOfTheWeekString = weekDaysArray[i];
-            if (shortWeekDays) {
-                dayOfTheWeekString = checkSpecificLocales(dayOfTheWeekString, i);
-            } else {
-                dayOfTheWeekString = dayOfTheWeekString.substring(0, 1).toUpperCase() + dayOfTheWeekString.substring(1, 3);
-            }
-
-            dayOfWeek.setText(dayOfTheWeekString);
-        }
+    /**
+     * @return true if the day is in a highlighted range
+     */
+    public boolean isHighlighted(long epochDay) {
+        return highlightedRanges.contains(epochDay);
     }
 
-    private void setUpDaysOfMonthLayout() {
-
-        TextView dayOfTheMonthText;
-        View circleImage1;
-        View circleImage2;
-        ViewGroup dayOfTheMonthContainer;
-        ViewGroup dayOfTheMonthBackground;
-
-        for (int i = 1; i < 43; i++) {
-
-            dayOfTheMonthContainer = rootView.findViewWithTag(DAY_OF_THE_MONTH_LAYOUT + i);
-            dayOfTheMonthBackground = rootView.findViewWithTag(DAY_OF_THE_MONTH_BACKGROUND + i);
-            dayOfTheMonthText = rootView.findViewWithTag(DAY_OF_THE_MONTH_TEXT + i);
-            circleImage1 = rootView.findViewWithTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 + i);
-            circleImage2 = rootView.findViewWithTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_2 + i);
+    /**
+     * Show the twelve months of the year of the shown month instead of the month, drawn as compact grids on a
+     * single view that shares the markers, selection, ranges, labels and style of the calendar
+     * <p>
+     * The arrows move by years and tapping a month shows it in the month view.
+     *
+     * @param yearMode, true to show the year, false to show the month
+     */
+    public void setYearMode(boolean yearMode) {
+        if (this.yearMode == yearMode || style == null) {
+            return;
+        }
+        this.yearMode = yearMode;
+        if (yearMode && robotoCalendarYearView == null) {
+            robotoCalendarYearView = new RobotoCalendarYearView(getContext(), style, this::getMarkedDays, highlightedRanges);
+            robotoCalendarYearView.setOnMonthClickListener(onYearMonthClickListener);
+            ((ViewGroup) daysContainer.getParent()).addView(robotoCalendarYearView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        }
 
-            dayOfTheMonthText.setVisibility(View.INVISIBLE);
-            circleImage1.setVisibility(View.GONE);
-            circleImage2.setVisibility(View.GONE);
+        int monthVisibility = yearMode ? GONE : VISIBLE;
+        daysContainer.setVisibility(monthVisibility);
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.setVisibility(monthVisibility);
+        } else {
+            calendarGridLayout.setVisibility(monthVisibility);
+        }
+        robotoCalendarYearView.setVisibility(yearMode ? VISIBLE : GONE);
 
-            // Apply styles
-            dayOfTheMonthText.setBackgroundResource(android.R.color.transparent);
-            dayOfTheMonthText.setTypeface(null, Typeface.NORMAL);
-            dayOfTheMonthText.setTextColor(getColorCompatFromAttribute(getContext(), R.attr.roboto_calendar_view_day_of_the_month_text_color));
-            dayOfTheMonthContainer.setBackgroundResource(android.R.color.transparent);
-            dayOfTheMonthContainer.setOnClickListener(null);
-            dayOfTheMonthBackground.setBackgroundResource(android.R.color.transparent);
+        // The arrows may have moved by years, so the month is shown again
+        if (yearMode) {
+            setUpMonthLayout();
+            renderYear();
+            loadMonthMarkers();
+        } else {
+            updateView();
         }
     }
 
-    private void setUpDaysInCalendar() {
-
-        Calendar auxCalendar = Calendar.getInstance(Locale.getDefault());
-        auxCalendar.setTime(currentCalendar.getTime());
-        auxCalendar.set(Calendar.DAY_OF_MONTH, 1);
-        int firstDayOfMonth = auxCalendar.get(Calendar.DAY_OF_WEEK);
-        TextView dayOfTheMonthText;
-        ViewGroup dayOfTheMonthContainer;
-        ViewGroup dayOfTheMonthLayout;
+    public boolean isYearMode() {
+        return yearMode;
+    }
 
-        // Calculate dayOfTheMonthIndex
-        int dayOfTheMonthIndex = getWeekIndex(firstDayOfMonth, auxCalendar);
+    public void setShortWeekDays(boolean shortWeekDays) {
+        this.shortWeekDays = shortWeekDays;
+    }
 
-        for (int i = 1; i <= auxCalendar.getActualMaximum(Calendar.DAY_OF_MONTH); i++, dayOfTheMonthIndex++) {
-            dayOfTheMonthContainer = rootView.findViewWithTag(DAY_OF_THE_MONTH_LAYOUT + dayOfTheMonthIndex);
-            dayOfTheMonthText = rootView.findViewWithTag(DAY_OF_THE_MONTH_TEXT + dayOfTheMonthIndex);
-            if (dayOfTheMonthText == null) {
-                break;
-            }
-            dayOfTheMonthContainer.setOnClickListener(onDayOfMonthClickListener);
-            dayOfTheMonthContainer.setOnLongClickListener(onDayOfMonthLongClickListener);
-            dayOfTheMonthText.setVisibility(View.VISIBLE);
-            dayOfTheMonthText.setText(String.valueOf(i));
+    /**
+     * Mark the day, it's kept and shown whenever its month is
+     *
+     * @param date, the day to mark
+     */
+    public void markCircleImage1(@NotNull Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        long epochDay = toEpochDay(calendar);
+        circleImage1Days.add(epochDay);
+        renderYear();
+        int index = monthGrid.getCellIndexOfEpochDay(epochDay);
+        if (index == MonthGrid.NO_CELL || boundMonthState != null) {
+            return;
         }
 
-        for (int i = 36; i < 43; i++) {
-            dayOfTheMonthText = rootView.findViewWithTag(DAY_OF_THE_MONTH_TEXT + i);
-            dayOfTheMonthLayout = rootView.findViewWithTag(DAY_OF_THE_MONTH_LAYOUT + i);
-            if (dayOfTheMonthText.getVisibility() == INVISIBLE) {
-                dayOfTheMonthLayout.setVisibility(GONE);
-            } else {
-                dayOfTheMonthLayout.setVisibility(VISIBLE);
-            }
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.markCircleImage1(index);
+            return;
         }
+
+        circleImage1CellMask |= 1L << index;
+        renderCell(index, getCurrentDayIndex());
     }
 
-    private void markDayAsCurrentDay() {
-        // If it's the current month, mark current day
-        Calendar nowCalendar = Calendar.getInstance();
-        if (nowCalendar.get(Calendar.YEAR) == currentCalendar.get(Calendar.YEAR) && nowCalendar.get(Calendar.MONTH) == currentCalendar.get(Calendar.MONTH)) {
-            Calendar currentCalendar = Calendar.getInstance();
-            currentCalendar.setTime(nowCalendar.getTime());
+    /**
+     * Mark the day, it's kept and shown whenever its month is
+     *
+     * @param date, the day to mark
+     */
+    public void markCircleImage2(@NotNull Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        long epochDay = toEpochDay(calendar);
+        circleImage2Days.add(epochDay);
+        renderYear();
+        int index = monthGrid.getCellIndexOfEpochDay(epochDay);
+        if (index == MonthGrid.NO_CELL || boundMonthState != null) {
+            return;
+        }
 
-            ViewGroup dayOfTheMonthBackground = getDayOfMonthBackground(currentCalendar);
-            dayOfTheMonthBackground.setBackgroundResource(R.drawable.ring);
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.markCircleImage2(index);
+            return;
         }
-    }
 
-    private void updateView() {
-        setUpMonthLayout();
-        setUpWeekDaysLayout();
-        setUpDaysOfMonthLayout();
-        setUpDaysInCalendar();
-        markDayAsCurrentDay();
+        circleImage2CellMask |= 1L << index;
+        renderCell(index, getCurrentDayIndex());
     }
 
-    private ViewGroup getDayOfMonthBackground(Calendar currentCalendar) {
-        return (ViewGroup) getView(DAY_OF_THE_MONTH_BACKGROUND, currentCalendar);
+    /**
+     * Replace every marker of a type, days of any month are kept and shown whenever their month is
+     *
+     * @param dates,      the dates to mark
+     * @param markerType, the marker to show
+     */
+    public void setMarkers(@NotNull Collection<Date> dates, @NotNull MarkerType markerType) {
+        EpochDaySet markedDays = getMarkedDaySet(markerType);
+        markedDays.clear();
+        Calendar calendar = Calendar.getInstance();
+        for (Date date : dates) {
+            calendar.setTime(date);
+            markedDays.add(toEpochDay(calendar));
+        }
+        renderMarkers(markerType);
     }
 
-    private TextView getDayOfMonthText(Calendar currentCalendar) {
-        return (TextView) getView(DAY_OF_THE_MONTH_TEXT, currentCalendar);
+    /**
+     * Replace every marker of a type, days of any month are kept and shown whenever their month is
+     *
+     * @param epochDays,  the days to mark, as days since 1970-01-01
+     * @param markerType, the marker to show
+     */
+    public void setMarkers(@NotNull long[] epochDays, @NotNull MarkerType markerType) {
+        EpochDaySet markedDays = getMarkedDaySet(markerType);
+        markedDays.clear();
+        for (long epochDay : epochDays) {
+            markedDays.add(epochDay);
+        }
+        renderMarkers(markerType);
     }
 
-    private ImageView getCircleImage1(Calendar currentCalendar) {
-        return (ImageView) getView(DAY_OF_THE_MONTH_CIRCLE_IMAGE_1, currentCalendar);
+    /**
+     * Show a count for each day of a month as the intensity of a circle behind the day, in
+     * {@value RobotoCalendarStyle#HEAT_LEVELS} levels of the roboto_calendar_view_circle_1 colour relative to
+     * the highest count of the month
+     * <p>
+     * Counts are kept for one month, the selected day and today are drawn over them.
+     *
+     * @param year,      the year
+     * @param month,     the zero based month
+     * @param dayCounts, the count of day d at index d - 1, counts of 0 or less show nothing
+     */
+    public void setDayCounts(int year, int month, @NotNull int[] dayCounts) {
+        if (month < Calendar.JANUARY || month > Calendar.DECEMBER) {
+            throw new IllegalArgumentException("Invalid month: " + month);
+        }
+        int daysInMonth = Math.min(dayCounts.length, MonthGrid.getDaysInMonth(year, month));
+        int maxCount = 0;
+        for (int i = 0; i < daysInMonth; i++) {
+            maxCount = Math.max(maxCount, dayCounts[i]);
+        }
+        Arrays.fill(heatLevels, 0);
+        for (int i = 0; i < daysInMonth; i++) {
+            heatLevels[i + 1] = getHeatLevel(dayCounts[i], maxCount);
+        }
+        heatLevelsMonthKey = year * 12L + month;
+        renderHeatmap();
     }
 
-    private ImageView getCircleImage2(Calendar currentCalendar) {
-        return (ImageView) getView(DAY_OF_THE_MONTH_CIRCLE_IMAGE_2, currentCalendar);
+    /**
+     * Show a count for some days of the shown month, see {@link #setDayCounts(int, int, int[])}
+     *
+     * @param epochDays, the days, as days since 1970-01-01, days of other months are ignored and repeated days add up
+     * @param counts,    the count of the day at the same index
+     */
+    public void setDayCounts(@NotNull long[] epochDays, @NotNull int[] counts) {
+        if (epochDays.length != counts.length) {
+            throw new IllegalArgumentException("Days and counts differ in length: " + epochDays.length + ", " + counts.length);
+        }
+        int[] dayCounts = new int[monthGrid.getDaysInMonth()];
+        for (int i = 0; i < epochDays.length; i++) {
+            if (monthGrid.contains(epochDays[i]) && counts[i] > 0) {
+                dayCounts[(int) (epochDays[i] - monthGrid.getFirstEpochDay())] += counts[i];
+            }
+        }
+        setDayCounts(monthGrid.getYear(), monthGrid.getMonth(), dayCounts);
     }
 
-    private View getView(String key, Calendar currentCalendar) {
-        int index = getDayIndexByDate(currentCalendar);
-        return rootView.findViewWithTag(key + index);
+    /**
+     * Hide the counts of {@link #setDayCounts(int, int, int[])}
+     */
+    public void clearDayCounts() {
+        if (heatLevelsMonthKey == NO_MONTH) {
+            return;
+        }
+        heatLevelsMonthKey = NO_MONTH;
+        renderHeatmap();
     }
 
-    private int getColorCompatFromAttribute(Context context, int attributeId) {
-        return MaterialColors.getColor(context, attributeId, Color.RED);
+    /**
+     * Mark or unmark a day from any thread, changes posted before the next frame are applied together in it
+     * <p>
+     * If a day is posted more than once before the frame, the last change wins.
+     *
+     * @param epochDay,   the day, as days since 1970-01-01
+     * @param markerType, the marker
+     * @param marked,     true to mark the day, false to unmark it
+     */
+    public void postMarker(long epochDay, @NotNull MarkerType markerType, boolean marked) {
+        if (pendingChanges.setMarked(epochDay, markerType, marked)) {
+            scheduleApplyPendingChanges();
+        }
+    }
+
+    /**
+     * Select a day from any thread, applied on the next frame with the posted markers
+     *
+     * @param epochDay, the day, as days since 1970-01-01
+     */
+    public void postSelectedDay(long epochDay) {
+        if (epochDay == PendingCalendarChanges.NO_DAY) {
+            throw new IllegalArgumentException("Invalid epoch day: " + epochDay);
+        }
+        if (pendingChanges.setSelectedDay(epochDay)) {
+            scheduleApplyPendingChanges();
+        }
+    }
+
+    /**
+     * Clear the selected day from any thread, applied on the next frame with the posted markers
+     */
+    public void postClearSelectedDay() {
+        if (pendingChanges.setSelectedDay(PendingCalendarChanges.NO_DAY)) {
+            scheduleApplyPendingChanges();
+        }
+    }
+
+    /**
+     * @return true if the day was marked with {@link #markCircleImage1(Date)}, {@link #markCircleImage2(Date)}
+     * or {@link #setMarkers(Collection, MarkerType)}
+     */
+    public boolean isMarked(@NotNull Date date, @NotNull MarkerType markerType) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return getMarkedDaySet(markerType).contains(toEpochDay(calendar));
+    }
+
+    /**
+     * @return a copy of the days marked with a type, markers of the {@link MarkerProvider} aren't included
+     */
+    @NotNull
+    public EpochDaySet getMarkedDays(@NotNull MarkerType markerType) {
+        return new EpochDaySet(getMarkedDaySet(markerType));
+    }
+
+    /**
+     * Load the markers of every shown month from a provider, in the background
+     * <p>
+     * The last {@value MonthMarkersLoader#CACHE_SIZE} loaded months are kept and the previous and next
+     * months are loaded ahead, so navigating back and forth doesn't query the provider again. In year mode
+     * the twelve months of the year are loaded.
+     *
+     * @param markerProvider, the source of the markers or null to stop loading them
+     */
+    public void setMarkerProvider(@Nullable MarkerProvider markerProvider) {
+        if (monthMarkersLoader != null) {
+            monthMarkersLoader.clear();
+        }
+        monthMarkersLoader = markerProvider != null ? new MonthMarkersLoader(markerProvider, this::post, onMonthMarkersLoadedCallback) : null;
+        loadMonthMarkers();
+    }
+
+    /**
+     * Forget the markers loaded from the {@link MarkerProvider} and load the shown month again, call it
+     * after the data behind the provider changes
+     * <p>
+     * Markers of the provider are hidden until the new ones are loaded.
+     */
+    public void invalidateMarkers() {
+        if (monthMarkersLoader == null) {
+            return;
+        }
+        monthMarkersLoader.clear();
+        renderMarkers();
+        loadMonthMarkers();
+    }
+
+    /**
+     * Use a typeface for every text of the calendar instead of the fontPath styles
+     *
+     * @param typeface, the typeface or null to keep the current ones
+     */
+    public void setTypeface(@Nullable Typeface typeface) {
+        if (typeface == null) {
+            return;
+        }
+        style.typeface = typeface;
+        dateTitle.setTypeface(typeface);
+        for (TextView dayOfTheWeekText : dayOfTheWeekTexts) {
+            dayOfTheWeekText.setTypeface(typeface);
+        }
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.invalidate();
+            return;
+        }
+        for (DayOfTheMonthCell cell : dayOfTheMonthCells) {
+            if (cell != null) {
+                cell.dayOfTheMonthText.setTypeface(typeface);
+            }
+        }
+    }
+
+    /**
+     * Show a month snapshot in one pass, only touching what differs from the month shown before
+     * <p>
+     * Meant for calendars recycled in a list: binding a state equal to the bound one does nothing. While bound,
+     * markers come only from the state, and {@link #setDate(Date)} or the arrows go back to the markers of
+     * {@link #setMarkers(Collection, MarkerType)} and the {@link MarkerProvider}.
+     *
+     * @param monthState, the month to show
+     */
+    public void bind(@NotNull MonthState monthState) {
+        if (monthState.equals(boundMonthState)) {
+            return;
+        }
+        boundMonthState = monthState;
+
+        int year = monthState.getYear();
+        int month = monthState.getMonth();
+        currentCalendar.setFirstDayOfWeek(monthState.getFirstDayOfWeek());
+        currentCalendar.set(year, month, 1);
+        monthGrid.set(year, month, monthState.getFirstDayOfWeek());
+        selectedEpochDay = monthState.getSelectedDay() != 0 ? MonthGrid.toEpochDay(year, month, monthState.getSelectedDay()) : NO_DAY;
+        selectedRangeEndEpochDay = NO_DAY;
+
+        int leadingOffset = monthGrid.getLeadingOffset();
+        renderMonth((monthState.getDays(MarkerType.CIRCLE_1) & 0xFFFFFFFFL) << leadingOffset, (monthState.getDays(MarkerType.CIRCLE_2) & 0xFFFFFFFFL) << leadingOffset);
+    }
+
+    /**
+     * Forget the bound state, the month stays shown so binding the next one only touches what differs
+     */
+    public void unbind() {
+        boundMonthState = null;
+    }
+
+    /**
+     * @return the bound month or null if the calendar isn't bound
+     */
+    @Nullable
+    public MonthState getBoundMonthState() {
+        return boundMonthState;
+    }
+
+    RobotoCalendarStyle getStyle() {
+        return style;
+    }
+
+    public void showDateTitle(boolean show) {
+        if (show) {
+            robotoCalendarMonthLayout.setVisibility(VISIBLE);
+        } else {
+            robotoCalendarMonthLayout.setVisibility(GONE);
+        }
+    }
+
+    public void setRobotoCalendarListener(RobotoCalendarListener robotoCalendarListener) {
+        this.robotoCalendarListener = robotoCalendarListener;
+    }
+
+    /**
+     * Receive day clicks as primitives, without the {@link Date} of {@link RobotoCalendarListener}
+     *
+     * @param dayClickListener, the listener or null to remove it
+     */
+    public void setDayClickListener(@Nullable DayClickListener dayClickListener) {
+        this.dayClickListener = dayClickListener;
+    }
+
+    /**
+     * Report how long each {@link CalendarPhase} takes, the inflation of the calendar is reported right away
+     *
+     * @param calendarMetricsListener, the listener or null to stop measuring
+     */
+    public void setCalendarMetricsListener(@Nullable CalendarMetricsListener calendarMetricsListener) {
+        this.calendarMetricsListener = calendarMetricsListener;
+        if (calendarMetricsListener != null && inflateDurationNanos != NOT_MEASURED) {
+            calendarMetricsListener.onPhaseCompleted(CalendarPhase.INFLATE, inflateDurationNanos, inflatedDayViews);
+        }
+    }
+
+    /**
+     * Resolve the theme colours and drawables again and apply them to the shown month, call it after changing the theme
+     */
+    public void refreshStyle() {
+        style.resolve(getContext());
+
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.requestLayout();
+            robotoCalendarDaysView.invalidate();
+            return;
+        }
+
+        // Every colour may have changed, so every cell is applied again
+        Arrays.fill(dayOfTheMonthCellStates, CELL_NOT_RENDERED);
+        renderCells();
+    }
+
+    /**
+     * Inflate day of the month cells in the background, so the next calendars don't inflate their own
+     * <p>
+     * Call it from the main thread, for example when the screen that shows calendars is created. Cells are
+     * kept in a pool shared by every calendar, which calendars return their cells to with {@link #release()}.
+     * Calendars with the fontPath styles need {@link #initCalligraphy()} to be called before, so the cells are
+     * inflated with them.
+     *
+     * @param context, a context with the theme of the calendars
+     * @param count,   number of cells to have ready, {@link MonthGrid#MAX_CELLS} per calendar
+     */
+    public static void prewarm(@NotNull Context context, int count) {
+        DayOfTheMonthCellPool.prewarm(context, count);
+    }
+
+    /**
+     * Apply the Calligraphy fontPath of the RobotoCalendar*Text styles, instead of a roboto_calendar_view_font
+     * <p>
+     * Opt in, it replaces the process wide ViewPump configuration, so an app that builds its own ViewPump
+     * should add the Calligraphy interceptor there instead. Call it once, for example from
+     * Application#onCreate, before the first calendar is inflated. Activities still have to wrap their base
+     * context with ViewPumpContextWrapper. Without it, a fontPath set by the app is ignored and a warning is
+     * logged once.
+     */
+    public static void initCalligraphy() {
+        RobotoCalendarFonts.initViewPump();
+    }
+
+    /**
+     * Use another source of the current time, which decides the day shown as today
+     *
+     * @param clock, the clock, {@link RobotoCalendarClock#SYSTEM} by default
+     */
+    public void setClock(@NotNull RobotoCalendarClock clock) {
+        this.clock = clock;
+        todayEpochDay = NO_DAY;
+        onTodayChanged();
+    }
+
+    /**
+     * Give the day of the month cells back to the pool shared by every calendar, once this calendar won't be
+     * shown again, for example from Fragment#onDestroyView
+     * <p>
+     * Cells are kept while the calendar is detached, so a calendar recycled by a RecyclerView or a ViewPager
+     * is attached again without rendering every cell. A released calendar that is attached again takes new
+     * cells from the pool.
+     */
+    public void release() {
+        if (robotoCalendarDaysView != null || style == null || dayOfTheMonthCellsReleased) {
+            return;
+        }
+        dayOfTheMonthCellsReleased = true;
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            DayOfTheMonthCellPool.release(dayOfTheMonthCells[i]);
+            dayOfTheMonthCells[i] = null;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (style == null) {
+            return;
+        }
+
+        if (dayOfTheMonthCellsReleased) {
+            dayOfTheMonthCellsReleased = false;
+            addDayOfTheMonthCells();
+            renderCells();
+        }
+
+        // Follow midnight and changes of time or time zone while shown
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        getContext().registerReceiver(timeChangedReceiver, filter);
+        onTodayChanged();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (style != null) {
+            getContext().unregisterReceiver(timeChangedReceiver);
+            removeCallbacks(onDayChangedRunnable);
+        }
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (style != null) {
+            refreshStyle();
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.dateMillis = currentCalendar.getTimeInMillis();
+        savedState.firstDayOfWeek = currentCalendar.getFirstDayOfWeek();
+        savedState.selectedEpochDay = selectedEpochDay;
+        savedState.selectedRangeEndEpochDay = selectedRangeEndEpochDay;
+        savedState.rangeSelectionEnabled = rangeSelectionEnabled;
+        savedState.yearMode = yearMode;
+        savedState.shortWeekDays = shortWeekDays;
+        savedState.circleImage1Words = circleImage1Days.toPackedWords();
+        savedState.circleImage2Words = circleImage2Days.toPackedWords();
+        savedState.highlightedRanges = highlightedRanges.toPackedRanges();
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (style == null) {
+            return;
+        }
+
+        currentCalendar.setFirstDayOfWeek(savedState.firstDayOfWeek);
+        currentCalendar.setTimeInMillis(savedState.dateMillis);
+        selectedEpochDay = savedState.selectedEpochDay;
+        selectedRangeEndEpochDay = savedState.selectedRangeEndEpochDay;
+        rangeSelectionEnabled = savedState.rangeSelectionEnabled;
+        shortWeekDays = savedState.shortWeekDays;
+        circleImage1Days.clear();
+        circleImage1Days.addPackedWords(savedState.circleImage1Words);
+        circleImage2Days.clear();
+        circleImage2Days.addPackedWords(savedState.circleImage2Words);
+        highlightedRanges.clear();
+        highlightedRanges.addPackedRanges(savedState.highlightedRanges);
+
+        // Month, selection, markers and ranges are shown in a single pass
+        if (savedState.yearMode != yearMode) {
+            setYearMode(savedState.yearMode);
+        } else {
+            updateView();
+        }
+    }
+
+    private void findViewsById(View view) {
+
+        robotoCalendarMonthLayout = view.findViewById(R.id.robotoCalendarDateTitleContainer);
+        leftButton = view.findViewById(R.id.leftButton);
+        rightButton = view.findViewById(R.id.rightButton);
+        dateTitle = view.findViewById(R.id.monthText);
+
+        // Resolve week day texts once
+        for (int i = 0; i < MonthGrid.DAYS_IN_WEEK; i++) {
+            int weekIndex = i + 1;
+            dayOfTheWeekTexts[i] = view.findViewWithTag(DAY_OF_THE_WEEK_TEXT + weekIndex);
+        }
+
+        // Days go below the week days, in flat mode a single view draws them all
+        daysContainer = view.findViewById(R.id.daysContainer);
+        if (flatMode) {
+            robotoCalendarDaysView = new RobotoCalendarDaysView(getContext(), style);
+            robotoCalendarDaysView.setOnDayClickListener(onFlatDayOfMonthClickListener);
+            robotoCalendarDaysView.setRangeBandPainter(rangeBandPainter);
+            ((ViewGroup) daysContainer.getParent()).addView(robotoCalendarDaysView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+            inflatedDayViews = 1;
+            return;
+        }
+
+        calendarGridLayout = new CalendarGridLayout(getContext());
+        calendarGridLayout.setRangeBandPainter(rangeBandPainter);
+        ((ViewGroup) daysContainer.getParent()).addView(calendarGridLayout, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        addDayOfTheMonthCells();
+        inflatedDayViews = MonthGrid.MAX_CELLS;
+    }
+
+    /**
+     * Take the day of the month cells from the shared pool and add them to the week day columns
+     */
+    private void addDayOfTheMonthCells() {
+        DayOfTheMonthCellPool.acquire(getContext(), dayOfTheMonthCells, style.typeface != null);
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            DayOfTheMonthCell cell = dayOfTheMonthCells[i];
+
+            // Set tags to identify them
+            int viewIndex = i + 1;
+            cell.dayOfTheMonthLayout.setTag(R.id.roboto_calendar_day_index, i);
+            cell.dayOfTheMonthLayout.setTag(DAY_OF_THE_MONTH_LAYOUT + viewIndex);
+            cell.dayOfTheMonthText.setTag(DAY_OF_THE_MONTH_TEXT + viewIndex);
+            cell.dayOfTheMonthBackground.setTag(DAY_OF_THE_MONTH_BACKGROUND + viewIndex);
+            cell.dayOfTheMonthCircleImage1.setTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 + viewIndex);
+            cell.dayOfTheMonthCircleImage2.setTag(DAY_OF_THE_MONTH_CIRCLE_IMAGE_2 + viewIndex);
+
+            // Pooled cells may carry the typeface of their last calendar
+            cell.dayOfTheMonthText.setTypeface(style.typeface != null ? style.typeface : cell.inflatedTypeface);
+            calendarGridLayout.addView(cell.dayOfTheMonthLayout);
+        }
+
+        // Pooled cells keep the state of their last calendar, so everything is applied again
+        Arrays.fill(dayOfTheMonthCellStates, CELL_NOT_RENDERED);
+    }
+
+    private void setUpEventListeners() {
+
+        leftButton.setOnClickListener(view -> {
+            if (robotoCalendarListener == null) {
+                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
+            }
+
+            if (yearMode) {
+                showYear(-1);
+            } else {
+                // Decrease month
+                currentCalendar.add(Calendar.MONTH, -1);
+                clearSelectionOnMonthChange();
+                updateView();
+            }
+            robotoCalendarListener.onLeftButtonClick();
+        });
+
+        rightButton.setOnClickListener(view -> {
+            if (robotoCalendarListener == null) {
+                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
+            }
+
+            if (yearMode) {
+                showYear(1);
+            } else {
+                // Increase month
+                currentCalendar.add(Calendar.MONTH, 1);
+                clearSelectionOnMonthChange();
+                updateView();
+            }
+            robotoCalendarListener.onRightButtonClick();
+        });
+    }
+
+    /**
+     * Single days are unselected when the arrows change the month, ranges are kept so they can span months
+     */
+    private void clearSelectionOnMonthChange() {
+        if (!rangeSelectionEnabled) {
+            selectedEpochDay = NO_DAY;
+            selectedRangeEndEpochDay = NO_DAY;
+        }
+    }
+
+    private void setUpMonthLayout() {
+        RobotoCalendarLabels labels = RobotoCalendarLabels.get(Locale.getDefault());
+        String title = yearMode
+                ? labels.getTitle(currentCalendar.get(Calendar.YEAR))
+                : labels.getTitle(monthGrid.getYear(), monthGrid.getMonth(), MonthGrid.yearOf(getTodayEpochDay()));
+
+        // Titles are cached, so the same month gives the same instance and the text isn't set again
+        if (!title.equals(shownTitle)) {
+            shownTitle = title;
+            dateTitle.setText(title);
+        }
+    }
+
+    private void setUpWeekDaysLayout() {
+        Locale locale = Locale.getDefault();
+
+        // Week days only change with the locale, the first day of the week or the short week days flag
+        if (locale.equals(weekDaysLocale) && monthGrid.getFirstDayOfWeek() == weekDaysFirstDayOfWeek && shortWeekDays == weekDaysShort) {
+            return;
+        }
+        weekDaysLocale = locale;
+        weekDaysFirstDayOfWeek = monthGrid.getFirstDayOfWeek();
+        weekDaysShort = shortWeekDays;
+
+        RobotoCalendarLabels labels = RobotoCalendarLabels.get(locale);
+        for (int i = Calendar.SUNDAY; i <= Calendar.SATURDAY; i++) {
+            dayOfTheWeekTexts[monthGrid.getColumn(i)].setText(labels.getWeekDay(i, shortWeekDays));
+        }
+    }
+
+    private void setUpDaysView(@NotNull RobotoCalendarDaysView robotoCalendarDaysView, long circleImage1CellMask, long circleImage2CellMask) {
+        robotoCalendarDaysView.setMonth(monthGrid.getYear(), monthGrid.getMonth(), monthGrid.getLeadingOffset(), monthGrid.getDaysInMonth());
+        robotoCalendarDaysView.setCurrentDayIndex(getCurrentDayIndex());
+        robotoCalendarDaysView.setSelectedDayIndex(monthGrid.getCellIndexOfEpochDay(selectedEpochDay));
+        robotoCalendarDaysView.setSelectedRangeEndIndex(monthGrid.getCellIndexOfEpochDay(selectedRangeEndEpochDay));
+        applyMarkers(circleImage1CellMask, MarkerType.CIRCLE_1);
+        applyMarkers(circleImage2CellMask, MarkerType.CIRCLE_2);
+        if (isHeatmapShown()) {
+            renderHeatmap();
+        }
+    }
+
+    private void renderHeatmap() {
+        long startNanos = beginPhase(CalendarPhase.APPLY_HEATMAP);
+        int count = 0;
+        if (robotoCalendarDaysView != null) {
+            boolean shown = isHeatmapShown();
+            for (int dayOfMonth = 1; dayOfMonth <= monthGrid.getDaysInMonth(); dayOfMonth++) {
+                int level = shown ? heatLevels[dayOfMonth] : 0;
+                robotoCalendarDaysView.setHeatLevel(monthGrid.getCellIndexOfDayOfMonth(dayOfMonth), level);
+                count += level != 0 ? 1 : 0;
+            }
+        } else {
+            // Only the cells whose level changed are touched
+            renderCells();
+            for (int dayOfMonth = 1; dayOfMonth <= monthGrid.getDaysInMonth(); dayOfMonth++) {
+                count += getHeatLevel(dayOfMonth) != 0 ? 1 : 0;
+            }
+        }
+        endPhase(CalendarPhase.APPLY_HEATMAP, startNanos, count);
+    }
+
+    private boolean isHeatmapShown() {
+        return heatLevelsMonthKey == monthGrid.getYear() * 12L + monthGrid.getMonth();
+    }
+
+    /**
+     * @return the heat level shown for a day of the shown month
+     */
+    private int getHeatLevel(int dayOfMonth) {
+        return isHeatmapShown() ? heatLevels[dayOfMonth] : 0;
+    }
+
+    /**
+     * @return 0 for no count, else the bucket of the count from 1 to {@link RobotoCalendarStyle#HEAT_LEVELS}
+     */
+    private static int getHeatLevel(int count, int maxCount) {
+        if (count <= 0) {
+            return 0;
+        }
+        return (int) ((count * (long) RobotoCalendarStyle.HEAT_LEVELS + maxCount - 1) / maxCount);
+    }
+
+    private void renderCells() {
+        int currentDayIndex = getCurrentDayIndex();
+        // Layout requests of every cell are handled once, by the grid
+        calendarGridLayout.beginBatch();
+        for (int i = 0; i < MonthGrid.MAX_CELLS; i++) {
+            renderCell(i, currentDayIndex);
+        }
+        calendarGridLayout.endBatch();
+    }
+
+    /**
+     * Apply the state of a day of the month cell, touching only the views that changed since it was last applied
+     */
+    private void renderCell(int index, int currentDayIndex) {
+        DayOfTheMonthCell cell = dayOfTheMonthCells[index];
+        int state = getCellState(index, currentDayIndex);
+        int previousState = dayOfTheMonthCellStates[index];
+        if (cell == null || state == previousState) {
+            // Released cells are applied again when the calendar is attached
+            return;
+        }
+        dayOfTheMonthCellStates[index] = state;
+        calendarGridLayout.beginBatch();
+        applyCellState(cell, state, previousState);
+        calendarGridLayout.endBatch();
+    }
+
+    private void applyCellState(DayOfTheMonthCell cell, int state, int previousState) {
+        int changes = previousState == CELL_NOT_RENDERED ? CELL_NOT_RENDERED : state ^ previousState;
+        boolean selected = (state & CELL_SELECTED) != 0;
+
+        if ((changes & CELL_HIDDEN) != 0) {
+            cell.dayOfTheMonthLayout.setVisibility((state & CELL_HIDDEN) != 0 ? GONE : VISIBLE);
+        }
+
+        if ((changes & CELL_DAY_OF_MONTH) != 0) {
+            ViewGroup dayOfTheMonthContainer = cell.dayOfTheMonthLayout;
+            TextView dayOfTheMonthText = cell.dayOfTheMonthText;
+            int dayOfMonth = state & CELL_DAY_OF_MONTH;
+            if (dayOfMonth == 0) {
+                dayOfTheMonthText.setVisibility(View.INVISIBLE);
+                dayOfTheMonthContainer.setOnClickListener(null);
+                dayOfTheMonthContainer.setOnLongClickListener(null);
+                dayOfTheMonthContainer.setClickable(false);
+                dayOfTheMonthContainer.setLongClickable(false);
+            } else {
+                if (previousState == CELL_NOT_RENDERED || (previousState & CELL_DAY_OF_MONTH) == 0) {
+                    dayOfTheMonthText.setVisibility(View.VISIBLE);
+                    dayOfTheMonthContainer.setOnClickListener(onDayOfMonthClickListener);
+                    dayOfTheMonthContainer.setOnLongClickListener(onDayOfMonthLongClickListener);
+                }
+                dayOfTheMonthText.setText(RobotoCalendarDaysView.DAY_OF_THE_MONTH_LABELS[dayOfMonth]);
+            }
+        }
+
+        if ((changes & (CELL_CURRENT_DAY | CELL_SELECTED | CELL_SELECTED_RANGE_END | CELL_HEAT_LEVEL)) != 0) {
+            int heatLevel = (state & CELL_HEAT_LEVEL) >> CELL_HEAT_LEVEL_SHIFT;
+            if (selected) {
+                cell.dayOfTheMonthBackground.setBackground((state & CELL_SELECTED_RANGE_END) != 0 ? style.selectedRangeEndDrawable : style.selectedDayDrawable);
+            } else if ((state & CELL_CURRENT_DAY) != 0) {
+                cell.dayOfTheMonthBackground.setBackground(style.currentDayDrawable);
+            } else if (heatLevel != 0) {
+                cell.dayOfTheMonthBackground.setBackground(getHeatDrawable(cell, heatLevel));
+            } else {
+                cell.dayOfTheMonthBackground.setBackground(null);
+            }
+        }
+
+        if ((changes & CELL_SELECTED) != 0) {
+            cell.dayOfTheMonthText.setTextColor(selected ? style.selectedDayTextColorList : style.dayOfTheMonthTextColorList);
+        }
+
+        if ((changes & (CELL_CIRCLE_IMAGE_1 | CELL_SELECTED)) != 0) {
+            renderCircleImage(cell.dayOfTheMonthCircleImage1, (state & CELL_CIRCLE_IMAGE_1) != 0, selected, style.circleImage1ColorList);
+        }
+
+        if ((changes & (CELL_CIRCLE_IMAGE_2 | CELL_SELECTED)) != 0) {
+            renderCircleImage(cell.dayOfTheMonthCircleImage2, (state & CELL_CIRCLE_IMAGE_2) != 0, selected, style.circleImage2ColorList);
+        }
+    }
+
+    /**
+     * @return the drawable of the cell tinted with the colour of the level, cells don't share it as views can't
+     * share a drawable
+     */
+    private Drawable getHeatDrawable(DayOfTheMonthCell cell, int heatLevel) {
+        if (cell.heatDrawable == null) {
+            Drawable drawable = getContext().getDrawable(R.drawable.circle);
+            cell.heatDrawable = drawable != null ? drawable.mutate() : null;
+        }
+        if (cell.heatDrawable != null) {
+            cell.heatDrawable.setTintList(style.heatLevelColorLists[heatLevel]);
+        }
+        return cell.heatDrawable;
+    }
+
+    private void renderCircleImage(ImageView circleImage, boolean visible, boolean selected, ColorStateList colorList) {
+        if (visible) {
+            circleImage.setVisibility(View.VISIBLE);
+            circleImage.setImageTintList(selected ? style.selectedDayTextColorList : colorList);
+        } else {
+            circleImage.setVisibility(View.GONE);
+        }
+    }
+
+    private int getCellState(int index, int currentDayIndex) {
+        int dayOfMonth = monthGrid.getDayOfMonth(index);
+        if (dayOfMonth == 0) {
+            // Hide the last row if the month doesn't reach it
+            return index >= MonthGrid.MAX_CELLS - MonthGrid.DAYS_IN_WEEK ? CELL_HIDDEN : 0;
+        }
+
+        int state = dayOfMonth;
+        if (index == currentDayIndex) {
+            state |= CELL_CURRENT_DAY;
+        }
+        if (index == monthGrid.getCellIndexOfEpochDay(selectedEpochDay)) {
+            state |= CELL_SELECTED;
+        } else if (index == monthGrid.getCellIndexOfEpochDay(selectedRangeEndEpochDay)) {
+            state |= CELL_SELECTED | CELL_SELECTED_RANGE_END;
+        }
+        if ((circleImage1CellMask & (1L << index)) != 0) {
+            state |= CELL_CIRCLE_IMAGE_1;
+        }
+        if ((circleImage2CellMask & (1L << index)) != 0) {
+            state |= CELL_CIRCLE_IMAGE_2;
+        }
+        state |= getHeatLevel(dayOfMonth) << CELL_HEAT_LEVEL_SHIFT;
+        return state;
+    }
+
+    private void scheduleApplyPendingChanges() {
+        // Choreographer callbacks can be posted from any thread and run on the thread that created it
+        if (choreographer != null) {
+            choreographer.postFrameCallback(applyPendingChangesCallback);
+        }
+    }
+
+    private void applyPendingChanges() {
+        pendingChanges.moveTo(applyingChanges);
+        applyPendingMarkers(MarkerType.CIRCLE_1);
+        applyPendingMarkers(MarkerType.CIRCLE_2);
+        if (applyingChanges.isSelectionChanged()) {
+            long epochDay = applyingChanges.getSelectedEpochDay();
+            if (epochDay == PendingCalendarChanges.NO_DAY) {
+                clearSelectedDay();
+            } else {
+                selectDay(epochDay);
+            }
+        }
+        applyingChanges.clear();
+    }
+
+    private void applyPendingMarkers(MarkerType markerType) {
+        if (!applyingChanges.hasMarkerChanges(markerType)) {
+            return;
+        }
+        EpochDaySet markedDays = getMarkedDaySet(markerType);
+        markedDays.removeAll(applyingChanges.getUnmarkedDays(markerType));
+        markedDays.addAll(applyingChanges.getMarkedDays(markerType));
+        renderMarkers(markerType);
+    }
+
+    private void updateView() {
+        boundMonthState = null;
+        monthGrid.set(currentCalendar.get(Calendar.YEAR), currentCalendar.get(Calendar.MONTH), currentCalendar.getFirstDayOfWeek());
+        renderMonth(getMarkerCellMask(MarkerType.CIRCLE_1), getMarkerCellMask(MarkerType.CIRCLE_2));
+        loadMonthMarkers();
+        renderYear();
+    }
+
+    /**
+     * Show the month of {@link #monthGrid} with the current selection and the given markers
+     */
+    private void renderMonth(long circleImage1CellMask, long circleImage2CellMask) {
+        long startNanos = beginPhase(CalendarPhase.UPDATE_MONTH);
+        shownFirstEpochDay = monthGrid.getFirstEpochDay();
+        setUpMonthLayout();
+        setUpWeekDaysLayout();
+        if (robotoCalendarDaysView != null) {
+            setUpDaysView(robotoCalendarDaysView, circleImage1CellMask, circleImage2CellMask);
+        } else {
+            this.circleImage1CellMask = circleImage1CellMask;
+            this.circleImage2CellMask = circleImage2CellMask;
+            renderCells();
+        }
+        renderRanges();
+        endPhase(CalendarPhase.UPDATE_MONTH, startNanos, monthGrid.getDaysInMonth());
+    }
+
+    /**
+     * Move the year overview by some years, the month view is only updated when it's shown again
+     */
+    private void showYear(int years) {
+        currentCalendar.add(Calendar.YEAR, years);
+        setUpMonthLayout();
+        renderYear();
+        loadMonthMarkers();
+    }
+
+    /**
+     * Show the year of the shown month in the year overview, if it's shown
+     */
+    private void renderYear() {
+        if (!yearMode) {
+            return;
+        }
+        robotoCalendarYearView.setYear(currentCalendar.get(Calendar.YEAR), currentCalendar.getFirstDayOfWeek());
+        robotoCalendarYearView.setDays(selectedEpochDay, selectedRangeEndEpochDay, getTodayEpochDay());
+    }
+
+    /**
+     * Show the tapped month of the year overview in the month view
+     */
+    private void onYearMonthClick(int month) {
+        currentCalendar.set(Calendar.DAY_OF_MONTH, 1);
+        currentCalendar.set(Calendar.MONTH, month);
+        setYearMode(false);
+    }
+
+    /**
+     * Find the highlighted ranges and the part of the selected range in the shown month, and draw them as bands
+     * behind its days
+     */
+    private void renderRanges() {
+        long startNanos = beginPhase(CalendarPhase.APPLY_RANGES);
+        // The days around the month tell whether ranges start or end on its first and last days
+        long fromEpochDay = monthGrid.getFirstEpochDay() - 1;
+        int length = monthGrid.getDaysInMonth() + 2;
+        int firstDayIndex = monthGrid.getLeadingOffset();
+        int daysInMonth = monthGrid.getDaysInMonth();
+
+        rangeBandPainter.highlightedBands.set(highlightedRanges.getBits(fromEpochDay, length), firstDayIndex, daysInMonth);
+        if (selectedRangeEndEpochDay != NO_DAY) {
+            rangeBandPainter.selectedBands.set(getRangeBits(selectedEpochDay, selectedRangeEndEpochDay, fromEpochDay, length), firstDayIndex, daysInMonth);
+        } else {
+            rangeBandPainter.selectedBands.clear();
+        }
+
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.invalidate();
+        } else {
+            calendarGridLayout.invalidate();
+        }
+        endPhase(CalendarPhase.APPLY_RANGES, startNanos,
+                Long.bitCount(rangeBandPainter.highlightedBands.cellMask | rangeBandPainter.selectedBands.cellMask));
+    }
+
+    /**
+     * @return bit i set if fromEpochDay + i is in the range from rangeStartEpochDay to rangeEndEpochDay
+     */
+    private static long getRangeBits(long rangeStartEpochDay, long rangeEndEpochDay, long fromEpochDay, int length) {
+        long from = Math.max(rangeStartEpochDay, fromEpochDay);
+        long to = Math.min(rangeEndEpochDay, fromEpochDay + length - 1);
+        if (from > to) {
+            return 0;
+        }
+        return (-1L << (from - fromEpochDay)) & (-1L >>> (Long.SIZE - 1 - (to - fromEpochDay)));
+    }
+
+    /**
+     * @return the first day of the shown month, safe to call from any thread
+     */
+    long getShownFirstEpochDay() {
+        return shownFirstEpochDay;
+    }
+
+    private void loadMonthMarkers() {
+        if (monthMarkersLoader == null) {
+            return;
+        }
+
+        // Every month of the year overview is drawn
+        if (yearMode) {
+            int year = currentCalendar.get(Calendar.YEAR);
+            for (int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+                monthMarkersLoader.load(year, month);
+            }
+            return;
+        }
+
+        int year = monthGrid.getYear();
+        int month = monthGrid.getMonth();
+        monthMarkersLoader.load(year, month);
+
+        // Prefetch the adjacent months so navigating to them renders from cache
+        if (month == Calendar.JANUARY) {
+            monthMarkersLoader.load(year - 1, Calendar.DECEMBER);
+        } else {
+            monthMarkersLoader.load(year, month - 1);
+        }
+        if (month == Calendar.DECEMBER) {
+            monthMarkersLoader.load(year + 1, Calendar.JANUARY);
+        } else {
+            monthMarkersLoader.load(year, month + 1);
+        }
+    }
+
+    private void renderMarkers() {
+        renderMarkers(MarkerType.CIRCLE_1);
+        renderMarkers(MarkerType.CIRCLE_2);
+    }
+
+    private void renderMarkers(MarkerType markerType) {
+        renderYear();
+        // A bound month only shows the markers of its state
+        if (boundMonthState != null) {
+            return;
+        }
+        applyMarkers(getMarkerCellMask(markerType), markerType);
+    }
+
+    /**
+     * @return the markers of a type kept for the current month, merged with the ones of the {@link MarkerProvider}
+     */
+    private long getMarkerCellMask(MarkerType markerType) {
+        return getMarkedDays(monthGrid, markerType) << monthGrid.getLeadingOffset();
+    }
+
+    /**
+     * @return the days of a month with a marker kept by the calendar or loaded by the {@link MarkerProvider}, the
+     * first day in the lowest bit, shared by the month and the year overview
+     */
+    private long getMarkedDays(MonthGrid monthGrid, MarkerType markerType) {
+        long dayMask = getMarkedDaySet(markerType).getBits(monthGrid.getFirstEpochDay(), monthGrid.getDaysInMonth());
+        if (monthMarkersLoader != null) {
+            MonthMarkers monthMarkers = monthMarkersLoader.get(monthGrid.getYear(), monthGrid.getMonth());
+            if (monthMarkers != null) {
+                dayMask |= monthMarkers.getDays(markerType) & 0xFFFFFFFFL;
+            }
+        }
+        return dayMask;
+    }
+
+    private void applyMarkers(long cellMask, MarkerType markerType) {
+        long startNanos = beginPhase(CalendarPhase.APPLY_MARKERS);
+
+        if (robotoCalendarDaysView != null) {
+            robotoCalendarDaysView.setMarkers(cellMask, markerType);
+            endPhase(CalendarPhase.APPLY_MARKERS, startNanos, Long.bitCount(cellMask));
+            return;
+        }
+
+        long changedCells;
+        if (markerType == MarkerType.CIRCLE_1) {
+            changedCells = circleImage1CellMask ^ cellMask;
+            circleImage1CellMask = cellMask;
+        } else {
+            changedCells = circleImage2CellMask ^ cellMask;
+            circleImage2CellMask = cellMask;
+        }
+
+        // Only the cells whose marker appears or disappears are touched
+        if (changedCells != 0) {
+            int currentDayIndex = getCurrentDayIndex();
+            calendarGridLayout.beginBatch();
+            while (changedCells != 0) {
+                renderCell(Long.numberOfTrailingZeros(changedCells), currentDayIndex);
+                changedCells &= changedCells - 1;
+            }
+            calendarGridLayout.endBatch();
+        }
+        endPhase(CalendarPhase.APPLY_MARKERS, startNanos, Long.bitCount(cellMask));
+    }
+
+    /**
+     * @return start time of the phase, only read when a {@link CalendarMetricsListener} is set
+     */
+    private long beginPhase(CalendarPhase phase) {
+        Trace.beginSection(phase.sectionName);
+        return calendarMetricsListener != null ? System.nanoTime() : NOT_MEASURED;
+    }
+
+    private void endPhase(CalendarPhase phase, long startNanos, int count) {
+        Trace.endSection();
+        if (calendarMetricsListener != null && startNanos != NOT_MEASURED) {
+            calendarMetricsListener.onPhaseCompleted(phase, System.nanoTime() - startNanos, count);
+        }
+    }
+
+    private EpochDaySet getMarkedDaySet(MarkerType markerType) {
+        return markerType == MarkerType.CIRCLE_1 ? circleImage1Days : circleImage2Days;
+    }
+
+    /**
+     * Select the clicked day and fire the listeners, shared by clicks and long clicks of both rendering modes
+     */
+    private void onDayOfMonthClick(int index, boolean longClick) {
+        // The phase spans the listener calls, so a slow listener shows up in the click time
+        long startNanos = beginPhase(CalendarPhase.CLICK);
+        try {
+            long epochDay = monthGrid.getEpochDay(index);
+            // In range mode a click ends the started range, or starts a new one
+            boolean rangeEnded = rangeSelectionEnabled && !longClick && selectedEpochDay != NO_DAY && selectedRangeEndEpochDay == NO_DAY;
+            if (rangeEnded) {
+                selectRange(selectedEpochDay, epochDay);
+            } else {
+                selectDay(epochDay);
+            }
+
+            // Fire event
+            if (robotoCalendarListener == null && dayClickListener == null) {
+                throw new IllegalStateException("You must assign a valid RobotoCalendarListener first!");
+            }
+
+            if (dayClickListener != null) {
+                int year = monthGrid.getYear();
+                int month = monthGrid.getMonth();
+                int dayOfMonth = monthGrid.getDayOfMonth(index);
+                if (longClick) {
+                    dayClickListener.onDayLongClick(year, month, dayOfMonth);
+                } else {
+                    dayClickListener.onDayClick(year, month, dayOfMonth);
+                }
+            }
+
+            if (robotoCalendarListener != null) {
+                Date date = getDayOfMonthCalendar(index).getTime();
+                if (longClick) {
+                    robotoCalendarListener.onDayLongClick(date);
+                } else {
+                    robotoCalendarListener.onDayClick(date);
+                }
+                if (rangeEnded) {
+                    robotoCalendarListener.onRangeSelected(getSelectedDay(), getSelectedRangeEnd());
+                } else if (rangeSelectionEnabled && !longClick) {
+                    robotoCalendarListener.onRangeStartSelected(date);
+                }
+            }
+        } finally {
+            endPhase(CalendarPhase.CLICK, startNanos, 1);
+        }
+    }
+
+    private Calendar getDayOfMonthCalendar(int index) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(monthGrid.getYear(), monthGrid.getMonth(), monthGrid.getDayOfMonth(index));
+        return calendar;
+    }
+
+    /**
+     * @return position of today, or of the today of the bound month, in the grid or {@link MonthGrid#NO_CELL} if it's not in the current month
+     */
+    private int getCurrentDayIndex() {
+        if (boundMonthState != null) {
+            return monthGrid.getCellIndexOfDayOfMonth(boundMonthState.getToday());
+        }
+        return monthGrid.getCellIndexOfEpochDay(getTodayEpochDay());
+    }
+
+    /**
+     * @return today from the clock, only computed again once the day is over
+     */
+    private long getTodayEpochDay() {
+        if (clock.currentTimeMillis() >= nextDayStartMillis) {
+            refreshToday();
+        }
+        return todayEpochDay;
+    }
+
+    private void refreshToday() {
+        TimeZone timeZone = clock.getTimeZone();
+        todayEpochDay = MonthGrid.toEpochDay(clock.currentTimeMillis(), timeZone);
+        nextDayStartMillis = MonthGrid.startOfEpochDay(todayEpochDay + 1, timeZone);
+    }
+
+    /**
+     * Compute today again and move the current day ring, after midnight or a change of time or time zone
+     */
+    private void onTodayChanged() {
+        if (style == null) {
+            return;
+        }
+        long previousTodayEpochDay = todayEpochDay;
+        refreshToday();
+        if (todayEpochDay != previousTodayEpochDay && boundMonthState == null) {
+            setUpMonthLayout();
+            if (robotoCalendarDaysView != null) {
+                robotoCalendarDaysView.setCurrentDayIndex(getCurrentDayIndex());
+            } else {
+                renderCells();
+            }
+            renderYear();
+        }
+        scheduleDayChange();
+    }
+
+    private void scheduleDayChange() {
+        removeCallbacks(onDayChangedRunnable);
+        if (isAttachedToWindow()) {
+            postDelayed(onDayChangedRunnable, Math.max(0, nextDayStartMillis - clock.currentTimeMillis()));
+        }
     }
 
     public interface RobotoCalendarListener {
@@ -536,6 +1679,132 @@ public class RobotoCalendarView extends LinearLayout {
         void onRightButtonClick();
 
         void onLeftButtonClick();
+
+        /**
+         * Called after {@link #onDayClick(Date)} when a click starts a range, see
+         * {@link RobotoCalendarView#setRangeSelectionEnabled(boolean)}
+         *
+         * @param startDate, the first day of the range
+         */
+        default void onRangeStartSelected(Date startDate) {
+        }
+
+        /**
+         * Called after {@link #onDayClick(Date)} when a click ends a range
+         *
+         * @param startDate, the first day of the range
+         * @param endDate,   the last day of the range, included, the same as the first one for a single day
+         */
+        default void onRangeSelected(Date startDate, Date endDate) {
+        }
+    }
+
+    /**
+     * Day clicks without allocations, see {@link #setDayClickListener(DayClickListener)}
+     */
+    public interface DayClickListener {
+
+        /**
+         * @param year,       the year
+         * @param month,      the zero based month
+         * @param dayOfMonth, the day of the month, {@link MonthGrid#toEpochDay(int, int, int)} gives its epoch day
+         */
+        void onDayClick(int year, int month, int dayOfMonth);
+
+        void onDayLongClick(int year, int month, int dayOfMonth);
+    }
+
+    /**
+     * Durations of the work done by the calendar, see {@link #setCalendarMetricsListener(CalendarMetricsListener)}
+     */
+    public interface CalendarMetricsListener {
+
+        /**
+         * Called on the main thread when a phase ends, phases may be nested in others
+         *
+         * @param phase,          the measured work
+         * @param durationNanos,  how long it took
+         * @param count,          number of items handled, described by each {@link CalendarPhase}
+         */
+        void onPhaseCompleted(@NotNull CalendarPhase phase, long durationNanos, int count);
+    }
+
+    /**
+     * Source of the markers of a month, see {@link #setMarkerProvider(MarkerProvider)}
+     */
+    public interface MarkerProvider {
+
+        /**
+         * Called on a background thread, so it may query a database or do other slow work. A runtime exception is
+         * logged and leaves the month unmarked until it's shown again.
+         *
+         * @param year,    the year
+         * @param month,   the zero based month
+         * @param markers, where to mark the days of the month
+         */
+        void loadMarkers(int year, int month, @NotNull MonthMarkers markers);
+    }
+
+    /**
+     * Shown month, selection, markers and highlighted ranges of the calendar, with the markers packed in 64 day words
+     */
+    static class SavedState extends BaseSavedState {
+
+        long dateMillis;
+        int firstDayOfWeek;
+        long selectedEpochDay;
+        long selectedRangeEndEpochDay;
+        boolean rangeSelectionEnabled;
+        boolean yearMode;
+        boolean shortWeekDays;
+        long[] circleImage1Words;
+        long[] circleImage2Words;
+        long[] highlightedRanges;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel source) {
+            super(source);
+            dateMillis = source.readLong();
+            firstDayOfWeek = source.readInt();
+            selectedEpochDay = source.readLong();
+            selectedRangeEndEpochDay = source.readLong();
+            rangeSelectionEnabled = source.readInt() != 0;
+            yearMode = source.readInt() != 0;
+            shortWeekDays = source.readInt() != 0;
+            circleImage1Words = source.createLongArray();
+            circleImage2Words = source.createLongArray();
+            highlightedRanges = source.createLongArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeLong(dateMillis);
+            out.writeInt(firstDayOfWeek);
+            out.writeLong(selectedEpochDay);
+            out.writeLong(selectedRangeEndEpochDay);
+            out.writeInt(rangeSelectionEnabled ? 1 : 0);
+            out.writeInt(yearMode ? 1 : 0);
+            out.writeInt(shortWeekDays ? 1 : 0);
+            out.writeLongArray(circleImage1Words);
+            out.writeLongArray(circleImage2Words);
+            out.writeLongArray(highlightedRanges);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Draws the twelve months of a year as compact grids on a single canvas, used by the year overview of
+ * {@link RobotoCalendarView}
+ * <p>
+ * Markers are read from the calendar, the same merge of its sets and its {@link RobotoCalendarView.MarkerProvider}
+ * the month shows, highlighted ranges from its set and colours from its style, so the overview keeps nothing of
+ * its own but the layout of the year.
+ */
+class RobotoCalendarYearView extends View {
+
+    static final int NO_MONTH = -1;
+
+    private static final int MONTHS_IN_YEAR = 12;
+    private static final int COLUMNS = 3;
+    private static final int ROWS = MONTHS_IN_YEAR / COLUMNS;
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    interface OnMonthClickListener {
+
+        /**
+         * @param month, the zero based month
+         */
+        void onMonthClick(int month);
+    }
+
+    interface MarkedDays {
+
+        /**
+         * @return the days of the month with the marker, the first day in the lowest bit
+         */
+        long getMarkedDays(MonthGrid monthGrid, MarkerType markerType);
+    }
+
+    private final MonthGrid[] monthGrids = new MonthGrid[MONTHS_IN_YEAR];
+    private final RobotoCalendarStyle style;
+    private final MarkedDays markedDays;
+    private final EpochDayRanges highlightedRanges;
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint ringPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final GestureDetector gestureDetector;
+    private int year = Integer.MIN_VALUE;
+    private int firstDayOfWeek;
+    private long selectedEpochDay = NO_DAY;
+    private long selectedRangeEndEpochDay = NO_DAY;
+    private long todayEpochDay = NO_DAY;
+    private int clickedMonth = NO_MONTH;
+    @Nullable
+    private OnMonthClickListener onMonthClickListener;
+
+    RobotoCalendarYearView(Context context, RobotoCalendarStyle style, MarkedDays markedDays, EpochDayRanges highlightedRanges) {
+        super(context);
+        this.style = style;
+        this.markedDays = markedDays;
+        this.highlightedRanges = highlightedRanges;
+        for (int i = 0; i < MONTHS_IN_YEAR; i++) {
+            monthGrids[i] = new MonthGrid();
+        }
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        circlePaint.setStyle(Paint.Style.FILL);
+        ringPaint.setStyle(Paint.Style.STROKE);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent event) {
+                return getMonthAt(event.getX(), event.getY()) != NO_MONTH;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent event) {
+                clickedMonth = getMonthAt(event.getX(), event.getY());
+                return clickedMonth != NO_MONTH;
+            }
+        });
+        setClickable(true);
+    }
+
+    void setOnMonthClickListener(@Nullable OnMonthClickListener onMonthClickListener) {
+        this.onMonthClickListener = onMonthClickListener;
+    }
+
+    /**
+     * Show a year, its month grids are only computed again when the year or the first day of the week change
+     */
+    void setYear(int year, int firstDayOfWeek) {
+        if (year != this.year || firstDayOfWeek != this.firstDayOfWeek) {
+            this.year = year;
+            this.firstDayOfWeek = firstDayOfWeek;
+            for (int month = 0; month < MONTHS_IN_YEAR; month++) {
+                monthGrids[month].set(year, month, firstDayOfWeek);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * @param selectedEpochDay,         the selected day or the first day of the selected range
+     * @param selectedRangeEndEpochDay, the last day of the selected range, or Long.MIN_VALUE if there is none
+     * @param todayEpochDay,            today
+     */
+    void setDays(long selectedEpochDay, long selectedRangeEndEpochDay, long todayEpochDay) {
+        this.selectedEpochDay = selectedEpochDay;
+        this.selectedRangeEndEpochDay = selectedRangeEndEpochDay;
+        this.todayEpochDay = todayEpochDay;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        float cellWidth = getMonthWidth(width) / MonthGrid.DAYS_IN_WEEK;
+        int height = (int) Math.ceil(getPaddingTop() + getPaddingBottom() + ROWS * getMonthHeight(cellWidth) + (ROWS - 1) * style.yearMonthSpacing);
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float monthWidth = getMonthWidth(getWidth());
+        float cellWidth = monthWidth / MonthGrid.DAYS_IN_WEEK;
+        float monthHeight = getMonthHeight(cellWidth);
+        RobotoCalendarLabels labels = RobotoCalendarLabels.get(Locale.getDefault());
+        textPaint.setTypeface(style.typeface);
+        ringPaint.setStrokeWidth(Math.max(1f, cellWidth / 12f));
+        ringPaint.setColor(style.currentDayRingColor);
+
+        for (int month = 0; month < MONTHS_IN_YEAR; month++) {
+            float left = getPaddingLeft() + (month % COLUMNS) * (monthWidth + style.yearMonthSpacing);
+            float top = getPaddingTop() + (month / COLUMNS) * (monthHeight + style.yearMonthSpacing);
+
+            textPaint.setTextSize(style.yearMonthTextSize);
+            textPaint.setColor(style.monthTextColor);
+            canvas.drawText(labels.getMonthName(month), left + monthWidth / 2f, top - textPaint.ascent(), textPaint);
+            drawDays(canvas, monthGrids[month], left, top + getTitleHeight(cellWidth), cellWidth);
+        }
+    }
+
+    private void drawDays(Canvas canvas, MonthGrid monthGrid, float left, float top, float cellWidth) {
+        long firstEpochDay = monthGrid.getFirstEpochDay();
+        int daysInMonth = monthGrid.getDaysInMonth();
+        // One lookup per marker and month, the days are then tested bit by bit
+        long circleImage1Bits = markedDays.getMarkedDays(monthGrid, MarkerType.CIRCLE_1);
+        long circleImage2Bits = markedDays.getMarkedDays(monthGrid, MarkerType.CIRCLE_2);
+        long highlightedBits = highlightedRanges.getBits(firstEpochDay, daysInMonth);
+        long rangeEndEpochDay = selectedRangeEndEpochDay != NO_DAY ? selectedRangeEndEpochDay : selectedEpochDay;
+
+        textPaint.setTextSize(style.yearDayOfTheMonthTextSize);
+        float textOffset = (textPaint.descent() + textPaint.ascent()) / 2f;
+        float radius = cellWidth * 0.45f;
+        float markerRadius = cellWidth / 14f;
+
+        for (int day = 0; day < daysInMonth; day++) {
+            int index = monthGrid.getLeadingOffset() + day;
+            long epochDay = firstEpochDay + day;
+            float cellLeft = left + (index % MonthGrid.DAYS_IN_WEEK) * cellWidth;
+            float centerX = cellLeft + cellWidth / 2f;
+            float centerY = top + (index / MonthGrid.DAYS_IN_WEEK) * cellWidth + cellWidth / 2f;
+            boolean selected = epochDay == selectedEpochDay || epochDay == selectedRangeEndEpochDay;
+
+            // Ranges as square cells, which join into bands at this size
+            if ((highlightedBits & (1L << day)) != 0) {
+                circlePaint.setColor(style.highlightedRangeColor);
+                canvas.drawRect(cellLeft, centerY - radius, cellLeft + cellWidth, centerY + radius, circlePaint);
+            }
+            if (selectedEpochDay != NO_DAY && epochDay >= selectedEpochDay && epochDay <= rangeEndEpochDay && !selected) {
+                circlePaint.setColor(style.selectedRangeColor);
+                canvas.drawRect(cellLeft, centerY - radius, cellLeft + cellWidth, centerY + radius, circlePaint);
+            }
+
+            if (selected) {
+                circlePaint.setColor(style.selectedDayBackgroundColor);
+                canvas.drawCircle(centerX, centerY, radius, circlePaint);
+            } else if (epochDay == todayEpochDay) {
+                canvas.drawCircle(centerX, centerY, radius - ringPaint.getStrokeWidth() / 2f, ringPaint);
+            }
+
+            textPaint.setColor(selected ? style.selectedDayTextColor : style.dayOfTheMonthTextColor);
+            canvas.drawText(RobotoCalendarDaysView.DAY_OF_THE_MONTH_LABELS[day + 1], centerX, centerY - textOffset, textPaint);
+
+            // Markers as dots under the day, side by side when both are set
+            boolean circleImage1 = (circleImage1Bits & (1L << day)) != 0;
+            boolean circleImage2 = (circleImage2Bits & (1L << day)) != 0;
+            if (circleImage1 || circleImage2) {
+                float markerY = centerY + radius - markerRadius * 2f;
+                float markerX = circleImage1 && circleImage2 ? centerX - markerRadius * 1.5f : centerX;
+                if (circleImage1) {
+                    circlePaint.setColor(selected ? style.selectedDayTextColor : style.circleImage1Color);
+                    canvas.drawCircle(markerX, markerY, markerRadius, circlePaint);
+                    markerX += markerRadius * 3f;
+                }
+                if (circleImage2) {
+                    circlePaint.setColor(selected ? style.selectedDayTextColor : style.circleImage2Color);
+                    canvas.drawCircle(markerX, markerY, markerRadius, circlePaint);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = gestureDetector.onTouchEvent(event);
+        if (event.getActionMasked() == MotionEvent.ACTION_UP && clickedMonth != NO_MONTH) {
+            performClick();
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        boolean handled = super.performClick();
+        int month = clickedMonth;
+        clickedMonth = NO_MONTH;
+        if (month != NO_MONTH && onMonthClickListener != null) {
+            onMonthClickListener.onMonthClick(month);
+            return true;
+        }
+        return handled;
+    }
+
+    private float getMonthWidth(int width) {
+        return Math.max(0, width - getPaddingLeft() - getPaddingRight() - (COLUMNS - 1) * style.yearMonthSpacing) / (float) COLUMNS;
+    }
+
+    /**
+     * @return height of a month name and the gap below it
+     */
+    private float getTitleHeight(float cellWidth) {
+        textPaint.setTextSize(style.yearMonthTextSize);
+        return textPaint.descent() - textPaint.ascent() + cellWidth / 4f;
+    }
+
+    /**
+     * @return height of a month, with room for six rows so every month of the year lines up
+     */
+    private float getMonthHeight(float cellWidth) {
+        return getTitleHeight(cellWidth) + MonthGrid.MAX_ROWS * cellWidth;
+    }
+
+    private int getMonthAt(float x, float y) {
+        float monthWidth = getMonthWidth(getWidth());
+        float monthHeight = getMonthHeight(monthWidth / MonthGrid.DAYS_IN_WEEK);
+        if (monthWidth <= 0 || x < getPaddingLeft() || y < getPaddingTop()) {
+            return NO_MONTH;
+        }
+        // Taps on the spacing between months go to the month on its left or above it
+        int column = (int) ((x - getPaddingLeft()) / (monthWidth + style.yearMonthSpacing));
+        int row = (int) ((y - getPaddingTop()) / (monthHeight + style.yearMonthSpacing));
+        if (column >= COLUMNS || row >= ROWS) {
+            return NO_MONTH;
+        }
+        return row * COLUMNS + column;
+    }
+}
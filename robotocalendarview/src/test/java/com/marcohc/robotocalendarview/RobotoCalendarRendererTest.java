@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that the off screen renderer draws the selected day and today of a state on their own cells
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RobotoCalendarRendererTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1080;
+
+    @Test
+    public void drawsSelectedDayAndTodayOnTheirCells() {
+        RobotoCalendarRenderer renderer = new RobotoCalendarRenderer(TestThemes.createCalendarContext());
+        MonthState monthState = new MonthState.Builder(2022, Calendar.JUNE)
+                .setFirstDayOfWeek(Calendar.SUNDAY)
+                .setSelectedDay(20)
+                .setToday(15)
+                .build();
+        RecordingCanvas canvas = new RecordingCanvas();
+
+        renderer.draw(canvas, WIDTH, HEIGHT, monthState);
+
+        RobotoCalendarStyle style = renderer.getStyle();
+        assertEquals(style.selectedDayTextColor, canvas.getTextColor("20"));
+        assertEquals(style.dayOfTheMonthTextColor, canvas.getTextColor("15"));
+        assertEquals(style.dayOfTheMonthTextColor, canvas.getTextColor("19"));
+        assertDrawnBehind(canvas, "20", style.selectedDayDrawable.getBounds());
+        assertDrawnBehind(canvas, "15", style.currentDayDrawable.getBounds());
+    }
+
+    /**
+     * The drawables keep the bounds of the last cell they were drawn on, which has to be the one of the text
+     */
+    private static void assertDrawnBehind(RecordingCanvas canvas, String text, Rect bounds) {
+        float[] position = canvas.getTextPosition(text);
+        assertTrue(text + " drawn at " + position[0] + ", " + position[1] + " outside of " + bounds, bounds.contains((int) position[0], (int) position[1]));
+    }
+
+    private static final class RecordingCanvas extends Canvas {
+
+        private final Map<String, float[]> textPositions = new HashMap<>();
+        private final Map<String, Integer> textColors = new HashMap<>();
+
+        @Override
+        public void drawText(@NotNull String text, float x, float y, @NotNull Paint paint) {
+            textPositions.put(text, new float[]{x, y});
+            textColors.put(text, paint.getColor());
+        }
+
+        float[] getTextPosition(String text) {
+            float[] position = textPositions.get(text);
+            assertNotNull(text + " wasn't drawn", position);
+            return position;
+        }
+
+        int getTextColor(String text) {
+            Integer color = textColors.get(text);
+            assertNotNull(text + " wasn't drawn", color);
+            return color;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Checks that a bound state styles its selected day and its today, whatever the clock says
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RobotoCalendarViewBindTest {
+
+    private static final int WIDTH = 1080;
+    private static final int YEAR = 2022;
+
+    // The clock is in June, the bound month in July
+    private final RobotoCalendarClock clock = new RobotoCalendarClock() {
+        @Override
+        public long currentTimeMillis() {
+            return MonthGrid.startOfEpochDay(MonthGrid.toEpochDay(YEAR, Calendar.JUNE, 15), getTimeZone()) + MonthGrid.MILLIS_PER_DAY / 2;
+        }
+
+        @NotNull
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getTimeZone("UTC");
+        }
+    };
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+        context = TestThemes.createCalendarContext();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void bindStylesSelectedDayAndToday() {
+        RobotoCalendarView calendar = new RobotoCalendarView(context, false);
+        calendar.setClock(clock);
+        calendar.bind(new MonthState.Builder(YEAR, Calendar.JULY, clock)
+                .setFirstDayOfWeek(Calendar.SUNDAY)
+                .setSelectedDay(20)
+                .setToday(10)
+                .build());
+        new ViewOperationMeter(calendar, WIDTH).layOut();
+
+        RobotoCalendarStyle style = calendar.getStyle();
+        MonthGrid monthGrid = new MonthGrid(YEAR, Calendar.JULY, Calendar.SUNDAY);
+        int selectedIndex = monthGrid.getCellIndexOfDayOfMonth(20);
+        int todayIndex = monthGrid.getCellIndexOfDayOfMonth(10);
+
+        assertEquals("20", getText(calendar, selectedIndex).getText().toString());
+        assertEquals(style.selectedDayTextColor, getText(calendar, selectedIndex).getCurrentTextColor());
+        assertSame(style.selectedDayDrawable, getBackground(calendar, selectedIndex).getBackground());
+
+        assertEquals("10", getText(calendar, todayIndex).getText().toString());
+        assertEquals(style.dayOfTheMonthTextColor, getText(calendar, todayIndex).getCurrentTextColor());
+        assertSame(style.currentDayDrawable, getBackground(calendar, todayIndex).getBackground());
+
+        // Today from the clock is in another month, so no other cell has a background
+        for (int index = 0; index < MonthGrid.MAX_CELLS; index++) {
+            if (index != selectedIndex && index != todayIndex) {
+                assertNull("Cell " + index, getBackground(calendar, index).getBackground());
+            }
+        }
+    }
+
+    private static TextView getText(RobotoCalendarView calendar, int index) {
+        return getCell(calendar, index).findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_TEXT + (index + 1));
+    }
+
+    private static View getBackground(RobotoCalendarView calendar, int index) {
+        return getCell(calendar, index).findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_BACKGROUND + (index + 1));
+    }
+
+    private static View getCell(RobotoCalendarView calendar, int index) {
+        return calendar.findViewWithTag("dayOfTheMonthLayout" + (index + 1));
+    }
+}
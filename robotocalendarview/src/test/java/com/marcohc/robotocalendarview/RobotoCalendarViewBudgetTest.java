@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Budgets of the work done by month switches, selections and bulk marking, so a change that makes them
+ * noticeably more expensive fails the build, together with checks that the month is still rendered right
+ * <p>
+ * View budgets are the views each operation has to touch, counted below, plus a margin of {@link #VIEW_MARGIN}
+ * views; raise one only with a reason in the commit that does it. Allocations are measured with the thread
+ * allocation counter of the JVM, so the allocation budgets are skipped on a JVM without it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RobotoCalendarViewBudgetTest {
+
+    private static final int WIDTH = 1080;
+    private static final int VIEW_MARGIN = 2;
+
+    // Going to the previous month and back
+    private static final long MONTH_ROUND_TRIP_ALLOCATED_BYTES = 128 * 1024;
+    // The texts of the 33 cells that show a day in May or in June, the backgrounds of the selected day and
+    // today, which May doesn't show, the title and the grid
+    private static final int MONTH_ROUND_TRIP_INVALIDATED_VIEWS = 33 + 2 + 2 + VIEW_MARGIN;
+    // At most the title and its three ancestors, the cells are laid out by the grid
+    private static final int MONTH_ROUND_TRIP_LAYOUT_REQUESTED_VIEWS = 4;
+
+    // Clicking a day and then another one
+    private static final long SELECTION_ALLOCATED_BYTES = 32 * 1024;
+    // The texts and the backgrounds of both days and the grid, which draws the selected range
+    private static final int SELECTION_INVALIDATED_VIEWS = 2 + 2 + 1 + VIEW_MARGIN;
+
+    // Replacing the markers of a month and going back to the first ones
+    private static final long BULK_MARKING_ALLOCATED_BYTES = 32 * 1024;
+    // The markers of the 15 even days, tinted when shown again, and the grid
+    private static final int BULK_MARKING_INVALIDATED_VIEWS = 15 + 1 + VIEW_MARGIN;
+
+    // In flat mode only the days view and the title draw again
+    private static final int FLAT_MONTH_ROUND_TRIP_INVALIDATED_VIEWS = 2 + VIEW_MARGIN;
+
+    private static final int YEAR = 2022;
+    private static final int TODAY_DAY_OF_MONTH = 15;
+
+    private final RobotoCalendarClock clock = new RobotoCalendarClock() {
+        @Override
+        public long currentTimeMillis() {
+            return MonthGrid.startOfEpochDay(MonthGrid.toEpochDay(YEAR, Calendar.JUNE, TODAY_DAY_OF_MONTH), getTimeZone()) + MonthGrid.MILLIS_PER_DAY / 2;
+        }
+
+        @NotNull
+        @Override
+        public TimeZone getTimeZone() {
+            return TimeZone.getTimeZone("UTC");
+        }
+    };
+
+    private final List<CalendarPhase> completedPhases = new ArrayList<>();
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+        context = TestThemes.createCalendarContext();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void monthRoundTripStaysWithinBudget() {
+        RobotoCalendarView calendar = createCalendar(false);
+        View leftButton = calendar.findViewById(R.id.leftButton);
+        View rightButton = calendar.findViewById(R.id.rightButton);
+        View firstCell = getCell(calendar, 0);
+        int viewCount = countViews(calendar);
+
+        // May and June 2022 both take five rows, so no row is shown or hidden
+        ViewOperationMeter meter = new ViewOperationMeter(calendar, WIDTH);
+        completedPhases.clear();
+        meter.measure(() -> {
+            leftButton.performClick();
+            rightButton.performClick();
+        });
+
+        assertBudget("invalidated views", MONTH_ROUND_TRIP_INVALIDATED_VIEWS, meter.getInvalidatedViews());
+        assertBudget("layout requested views", MONTH_ROUND_TRIP_LAYOUT_REQUESTED_VIEWS, meter.getLayoutRequestedViews());
+
+        // Cells are reused, never inflated or looked up again
+        assertFalse(completedPhases.contains(CalendarPhase.INFLATE));
+        assertEquals(viewCount, countViews(calendar));
+        assertSame(firstCell, getCell(calendar, 0));
+
+        assertMonthShown(calendar, Calendar.JUNE, "June");
+        leftButton.performClick();
+        assertMonthShown(calendar, Calendar.MAY, "May");
+        assertAllocatedBytes(MONTH_ROUND_TRIP_ALLOCATED_BYTES, meter);
+    }
+
+    @Test
+    public void selectionStaysWithinBudget() {
+        RobotoCalendarView calendar = createCalendar(false);
+        MonthGrid monthGrid = new MonthGrid(YEAR, Calendar.JUNE, Calendar.SUNDAY);
+        View firstDay = getCell(calendar, monthGrid.getCellIndexOfDayOfMonth(3));
+        View secondDay = getCell(calendar, monthGrid.getCellIndexOfDayOfMonth(20));
+
+        ViewOperationMeter meter = new ViewOperationMeter(calendar, WIDTH);
+        meter.measure(() -> {
+            firstDay.performClick();
+            secondDay.performClick();
+        });
+
+        assertBudget("invalidated views", SELECTION_INVALIDATED_VIEWS, meter.getInvalidatedViews());
+        // Selecting a day never lays the calendar out again
+        assertBudget("layout requested views", 0, meter.getLayoutRequestedViews());
+        assertFalse(calendar.isLayoutRequested());
+
+        assertEquals(toDate(20), calendar.getSelectedDay());
+        assertSelected(calendar, monthGrid.getCellIndexOfDayOfMonth(20), true);
+        assertSelected(calendar, monthGrid.getCellIndexOfDayOfMonth(3), false);
+        // Today keeps its ring
+        assertNotNull(getBackground(calendar, monthGrid.getCellIndexOfDayOfMonth(TODAY_DAY_OF_MONTH)).getBackground());
+        assertAllocatedBytes(SELECTION_ALLOCATED_BYTES, meter);
+    }
+
+    @Test
+    public void bulkMarkingStaysWithinBudget() {
+        RobotoCalendarView calendar = createCalendar(false);
+        MonthGrid monthGrid = new MonthGrid(YEAR, Calendar.JUNE, Calendar.SUNDAY);
+        long[] everyDay = new long[monthGrid.getDaysInMonth()];
+        long[] everyOtherDay = new long[(monthGrid.getDaysInMonth() + 1) / 2];
+        for (int i = 0; i < everyDay.length; i++) {
+            everyDay[i] = monthGrid.getFirstEpochDay() + i;
+        }
+        for (int i = 0; i < everyOtherDay.length; i++) {
+            everyOtherDay[i] = monthGrid.getFirstEpochDay() + i * 2;
+        }
+
+        ViewOperationMeter meter = new ViewOperationMeter(calendar, WIDTH);
+        meter.measure(() -> {
+            calendar.setMarkers(everyDay, MarkerType.CIRCLE_1);
+            calendar.setMarkers(everyOtherDay, MarkerType.CIRCLE_1);
+        });
+
+        assertBudget("invalidated views", BULK_MARKING_INVALIDATED_VIEWS, meter.getInvalidatedViews());
+        assertBudget("layout requested views", 0, meter.getLayoutRequestedViews());
+        assertFalse(calendar.isLayoutRequested());
+
+        for (int dayOfMonth = 1; dayOfMonth <= monthGrid.getDaysInMonth(); dayOfMonth++) {
+            View circleImage1 = getCell(calendar, monthGrid.getCellIndexOfDayOfMonth(dayOfMonth)).findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_CIRCLE_IMAGE_1 + (monthGrid.getCellIndexOfDayOfMonth(dayOfMonth) + 1));
+            assertEquals("Day " + dayOfMonth, dayOfMonth % 2 == 1 ? View.VISIBLE : View.GONE, circleImage1.getVisibility());
+            assertEquals(dayOfMonth % 2 == 1, calendar.isMarked(toDate(dayOfMonth), MarkerType.CIRCLE_1));
+        }
+        assertAllocatedBytes(BULK_MARKING_ALLOCATED_BYTES, meter);
+    }
+
+    @Test
+    public void flatMonthRoundTripStaysWithinBudget() {
+        RobotoCalendarView calendar = createCalendar(true);
+        View leftButton = calendar.findViewById(R.id.leftButton);
+        View rightButton = calendar.findViewById(R.id.rightButton);
+        int viewCount = countViews(calendar);
+
+        ViewOperationMeter meter = new ViewOperationMeter(calendar, WIDTH);
+        meter.measure(() -> {
+            leftButton.performClick();
+            rightButton.performClick();
+        });
+
+        assertBudget("invalidated views", FLAT_MONTH_ROUND_TRIP_INVALIDATED_VIEWS, meter.getInvalidatedViews());
+        assertBudget("layout requested views", MONTH_ROUND_TRIP_LAYOUT_REQUESTED_VIEWS, meter.getLayoutRequestedViews());
+        assertEquals(viewCount, countViews(calendar));
+
+        assertEquals("June", ((TextView) calendar.findViewById(R.id.monthText)).getText().toString());
+        Calendar shown = Calendar.getInstance();
+        shown.setTime(calendar.getDate());
+        assertEquals(Calendar.JUNE, shown.get(Calendar.MONTH));
+        assertNull(calendar.getSelectedDay());
+        assertAllocatedBytes(MONTH_ROUND_TRIP_ALLOCATED_BYTES, meter);
+    }
+
+    private RobotoCalendarView createCalendar(boolean flatMode) {
+        RobotoCalendarView calendar = new RobotoCalendarView(context, flatMode);
+        calendar.setClock(clock);
+        calendar.setDate(toDate(1));
+        calendar.setRobotoCalendarListener(new RobotoCalendarView.RobotoCalendarListener() {
+            @Override
+            public void onDayClick(Date date) {
+            }
+
+            @Override
+            public void onDayLongClick(Date date) {
+            }
+
+            @Override
+            public void onRightButtonClick() {
+            }
+
+            @Override
+            public void onLeftButtonClick() {
+            }
+        });
+        calendar.setCalendarMetricsListener((phase, durationNanos, count) -> completedPhases.add(phase));
+        new ViewOperationMeter(calendar, WIDTH).layOut();
+        return calendar;
+    }
+
+    /**
+     * Check the title and that every cell shows its day, or nothing outside of the month
+     */
+    private static void assertMonthShown(RobotoCalendarView calendar, int month, String title) {
+        assertEquals(title, ((TextView) calendar.findViewById(R.id.monthText)).getText().toString());
+        MonthGrid monthGrid = new MonthGrid(YEAR, month, Calendar.SUNDAY);
+        for (int index = 0; index < MonthGrid.MAX_CELLS; index++) {
+            View cell = getCell(calendar, index);
+            TextView text = cell.findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_TEXT + (index + 1));
+            int dayOfMonth = monthGrid.getDayOfMonth(index);
+            if (dayOfMonth == 0) {
+                assertTrue("Cell " + index, cell.getVisibility() != View.VISIBLE || text.getVisibility() != View.VISIBLE);
+            } else {
+                assertEquals("Cell " + index, View.VISIBLE, text.getVisibility());
+                assertEquals("Cell " + index, String.valueOf(dayOfMonth), text.getText().toString());
+            }
+        }
+    }
+
+    private static void assertSelected(RobotoCalendarView calendar, int index, boolean selected) {
+        TextView text = getCell(calendar, index).findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_TEXT + (index + 1));
+        assertEquals("Cell " + index, selected, text.getCurrentTextColor() == Color.WHITE);
+        assertEquals("Cell " + index, selected, getBackground(calendar, index).getBackground() != null);
+    }
+
+    /**
+     * Skips the rest of the test on a JVM without the allocation counter, so it comes last
+     */
+    private static void assertAllocatedBytes(long budget, ViewOperationMeter meter) {
+        assumeTrue("The JVM doesn't count allocated bytes", ViewOperationMeter.isAllocationMeasured());
+        assertBudget("allocated bytes", budget, meter.getAllocatedBytes());
+    }
+
+    private static void assertBudget(String name, long budget, long actual) {
+        assertTrue(name + ": " + actual + ", budget " + budget, actual <= budget);
+    }
+
+    private static View getCell(RobotoCalendarView calendar, int index) {
+        return calendar.findViewWithTag("dayOfTheMonthLayout" + (index + 1));
+    }
+
+    private static View getBackground(RobotoCalendarView calendar, int index) {
+        return getCell(calendar, index).findViewWithTag(RobotoCalendarView.DAY_OF_THE_MONTH_BACKGROUND + (index + 1));
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countViews(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static Date toDate(int dayOfMonth) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(YEAR, Calendar.JUNE, dayOfMonth);
+        return calendar.getTime();
+    }
+}
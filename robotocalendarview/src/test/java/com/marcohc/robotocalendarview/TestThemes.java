@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import static org.junit.Assert.assertNotEquals;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+/**
+ * Contexts with the calendar colours of the test resources on top of the library theme
+ */
+final class TestThemes {
+
+    private TestThemes() {
+    }
+
+    static Context createCalendarContext() {
+        // The test resources aren't listed by the R class of the library, so the overlay is found by name
+        Context application = ApplicationProvider.getApplicationContext();
+        int themeOverlay = application.getResources().getIdentifier("ThemeOverlay.RobotoCalendarViewTest", "style", application.getPackageName());
+        assertNotEquals("Test resources aren't merged", 0, themeOverlay);
+        Context context = new ContextThemeWrapper(application, R.style.AppTheme);
+        context.getTheme().applyStyle(themeOverlay, true);
+        return context;
+    }
+}
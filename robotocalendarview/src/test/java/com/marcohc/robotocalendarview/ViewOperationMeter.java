@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Marco Hernaiz Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marcohc.robotocalendarview;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the cost of an operation on a view hierarchy: bytes allocated by the thread, views that called
+ * {@link View#invalidate()} and shown views left waiting for a layout pass
+ * <p>
+ * The operation is run a few times first, so caches and lazily created objects don't count, and the hierarchy
+ * is laid out before each measured run, as a frame would.
+ */
+final class ViewOperationMeter {
+
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private final View root;
+    private final int width;
+    private long allocatedBytes;
+    private int invalidatedViews;
+    private int layoutRequestedViews;
+
+    /**
+     * @param root,  the hierarchy to measure
+     * @param width, width the hierarchy is laid out with
+     */
+    ViewOperationMeter(View root, int width) {
+        this.root = root;
+        this.width = width;
+    }
+
+    /**
+     * @return true if the JVM counts the bytes allocated by each thread
+     */
+    static boolean isAllocationMeasured() {
+        ThreadMXBean threadMXBean = getThreadMXBean();
+        return threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Run the operation, it must be repeatable and leave the hierarchy as it found it
+     */
+    void measure(Runnable operation) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            layOut();
+            operation.run();
+        }
+
+        ThreadMXBean threadMXBean = getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long totalBytes = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            layOut();
+            clearInvalidated(root);
+            long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            operation.run();
+            totalBytes += threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        }
+        allocatedBytes = totalBytes / MEASURED_RUNS;
+
+        // Views of the last run
+        invalidatedViews = countInvalidated(root);
+        layoutRequestedViews = countLayoutRequested(root);
+    }
+
+    /**
+     * @return bytes allocated by a run, on average
+     */
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    int getInvalidatedViews() {
+        return invalidatedViews;
+    }
+
+    int getLayoutRequestedViews() {
+        return layoutRequestedViews;
+    }
+
+    /**
+     * Measure and lay the hierarchy out, which clears every layout request
+     */
+    void layOut() {
+        root.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+    }
+
+    private static void clearInvalidated(View view) {
+        shadowOf(view).clearWasInvalidated();
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                clearInvalidated(viewGroup.getChildAt(i));
+            }
+        }
+    }
+
+    private static int countInvalidated(View view) {
+        int count = shadowOf(view).wasInvalidated() ? 1 : 0;
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countInvalidated(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gone views are never laid out, so their requests only count once they are shown
+     */
+    private static int countLayoutRequested(View view) {
+        if (view.getVisibility() == View.GONE) {
+            return 0;
+        }
+        int count = view.isLayoutRequested() ? 1 : 0;
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countLayoutRequested(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static ThreadMXBean getThreadMXBean() {
+        return (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+}
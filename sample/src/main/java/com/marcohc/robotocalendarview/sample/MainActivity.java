@@ -20,6 +20,7 @@ import android.os.Bundle;
 import android.widget.Button;
 import android.widget.Toast;
 
+import com.marcohc.robotocalendarview.MonthGrid;
 import com.marcohc.robotocalendarview.RobotoCalendarView;
 import com.marcohc.robotocalendarview.RobotoCalendarView.RobotoCalendarListener;
 
@@ -39,6 +40,12 @@ public class MainActivity extends AppCompatActivity implements RobotoCalendarLis
 
         super.onCreate(savedInstanceState);
 
+        // The sample styles set their fonts with fontPath
+        RobotoCalendarView.initCalligraphy();
+
+        // Inflate the cells of a second calendar in the background, like before opening a calendar dialog
+        RobotoCalendarView.prewarm(this, MonthGrid.MAX_CELLS);
+
         setContentView(R.layout.activity_main);
 
         // Gets the calendar from the view